@@ -0,0 +1,430 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import android.location.Location;
+import android.location.LocationListener;
+import android.os.Handler;
+import net.opengis.swe.v20.BinaryComponent;
+import net.opengis.swe.v20.BinaryEncoding;
+import net.opengis.swe.v20.BinaryMember;
+import net.opengis.swe.v20.Category;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.Time;
+import net.opengis.swe.v20.Vector;
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.vast.swe.SWEHelper;
+import org.vast.swe.helper.GeoPosHelper;
+
+
+/**
+ * <p>
+ * Base of outputs publishing location fixes. It applies the publishing
+ * settings common to all location outputs: spatial deadband and heartbeat,
+ * batching of fixes over the flush interval, and history of past records.
+ * <br/>Fixes can be published from several threads, so publishing is
+ * synchronized on the output.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public abstract class AbstractLocationOutput extends AbstractSensorOutput<AndroidSensorsDriver> implements IAndroidOutput, LocationListener
+{
+    static final int PROVIDER_LENGTH = 8; // bytes
+    static final double EARTH_RADIUS = 6371000.0; // m
+    static final String[] QUALITY_FIELDS = {"accuracy", "vertAccuracy", "speed", "bearing"};
+    
+    // vertical accuracy is only available from API 26 so it is looked up
+    // by reflection since we compile against an older SDK
+    static Method hasVertAccuracyMethod;
+    static Method getVertAccuracyMethod;
+    static
+    {
+        try
+        {
+            hasVertAccuracyMethod = Location.class.getMethod("hasVerticalAccuracy");
+            getVertAccuracyMethod = Location.class.getMethod("getVerticalAccuracyMeters");
+        }
+        catch (NoSuchMethodException e)
+        {
+            getVertAccuracyMethod = null;
+        }
+    }
+    
+    String name;
+    DataComponent posDataStruct;
+    DataEncoding posEncoding;
+    boolean extendedRecord;
+    double deadband;
+    double heartbeat;
+    volatile SampleHistory history; // created on first record
+    int historySize;
+    
+    // single record and event recycled when fixes are sent one by one
+    boolean reuseRecord;
+    ReusableSensorDataEvent reusedEvent;
+    
+    // fixes waiting to be sent in a single event
+    long flushInterval;
+    Handler publishHandler;
+    List<DataBlock> pendingFixes = new ArrayList<DataBlock>();
+    Runnable flushTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            flushFixes();
+        }
+    };
+    
+    
+    protected AbstractLocationOutput(AndroidSensorsDriver parentModule, String name)
+    {
+        super(parentModule);
+        this.name = name;
+        
+        // output structure and encoding
+        AndroidSensorsConfig config = parentModule.getConfiguration();
+        extendedRecord = config.locationQualityFields;
+        posDataStruct = newLocationRecord(getName(), parentSensor.localFrameURI, extendedRecord);
+        posEncoding = newLocationEncoding(posDataStruct, config.useBinaryEncoding);
+        
+        // fixes closer than this to the last published one are not sent
+        deadband = config.locationDeadband;
+        heartbeat = config.locationHeartbeat;
+        
+        flushInterval = config.locationFlushInterval;
+        historySize = config.outputHistorySize;
+        
+        // batched fixes are kept until flush so they can't be recycled
+        if (config.sensorRecordPoolSize > 0 && flushInterval <= 0)
+        {
+            reuseRecord = true;
+            reusedEvent = new ReusableSensorDataEvent(this, 1);
+        }
+    }
+    
+    
+    /*
+     * Creates the location record structure (time + location), optionally
+     * followed by quality fields and provider name
+     */
+    static DataRecord newLocationRecord(String name, String localFrame, boolean withQuality)
+    {
+        GeoPosHelper fac = new GeoPosHelper();
+        DataRecord rec = fac.newDataRecord(withQuality ? 7 : 2);
+        rec.setName(name);
+        rec.setDefinition("http://sensorml.com/ont/swe/property/Location");
+        Time time = fac.newTimeStampIsoUTC();
+        rec.addComponent("time", time);
+        Vector vec = fac.newLocationVectorLLA(null);
+        vec.setLocalFrame(localFrame);
+        rec.addComponent("location", vec);
+        
+        if (withQuality)
+        {
+            rec.addComponent("accuracy", fac.createQuantity()
+                .definition(SWEHelper.getPropertyUri("HorizontalAccuracy"))
+                .label("Horizontal Accuracy")
+                .description("Radius of 68% confidence, NaN if unknown")
+                .uomCode("m")
+                .build());
+            rec.addComponent("vertAccuracy", fac.createQuantity()
+                .definition(SWEHelper.getPropertyUri("VerticalAccuracy"))
+                .label("Vertical Accuracy")
+                .description("Half height of 68% confidence interval, NaN if unknown")
+                .uomCode("m")
+                .build());
+            rec.addComponent("speed", fac.createQuantity()
+                .definition(SWEHelper.getPropertyUri("GroundSpeed"))
+                .label("Ground Speed")
+                .uomCode("m/s")
+                .build());
+            rec.addComponent("bearing", fac.createQuantity()
+                .definition(GeoPosHelper.DEF_HEADING_TRUE)
+                .label("Bearing")
+                .description("Direction of travel, clockwise from true north")
+                .uomCode("deg")
+                .build());
+            Category provider = fac.createCategory()
+                .definition(SWEHelper.getPropertyUri("LocationProvider"))
+                .label("Location Provider")
+                .build();
+            rec.addComponent("provider", provider);
+        }
+        
+        return rec;
+    }
+    
+    
+    /*
+     * Creates encoding for location records. The binary encoding has a fixed
+     * layout with location as double, quality fields as float and provider
+     * name as a fixed length ASCII string
+     */
+    static DataEncoding newLocationEncoding(DataComponent rec, boolean binary)
+    {
+        if (!binary)
+            return new GeoPosHelper().newTextEncoding(",", "\n");
+        
+        BinaryEncoding encoding = AndroidSensorOutput.newBinaryEncoding(rec, DataType.DOUBLE);
+        for (BinaryMember member: encoding.getMemberList())
+        {
+            BinaryComponent comp = (BinaryComponent)member;
+            String fieldName = comp.getRef().substring(1);
+            if (fieldName.equals("provider"))
+                comp.setByteLength(PROVIDER_LENGTH);
+            for (String qualityField: QUALITY_FIELDS)
+            {
+                if (fieldName.equals(qualityField))
+                    comp.setCdmDataType(DataType.FLOAT);
+            }
+        }
+        
+        return encoding;
+    }
+    
+    
+    /*
+     * Fills the record with the given fix
+     */
+    static void setLocationValues(DataBlock dataBlock, Location location, boolean withQuality)
+    {
+        dataBlock.setDoubleValue(0, location.getTime() / 1000.0);
+        dataBlock.setDoubleValue(1, location.getLatitude());
+        dataBlock.setDoubleValue(2, location.getLongitude());
+        dataBlock.setDoubleValue(3, location.getAltitude());
+        
+        if (withQuality)
+        {
+            dataBlock.setDoubleValue(4, location.hasAccuracy() ? location.getAccuracy() : Double.NaN);
+            dataBlock.setDoubleValue(5, getVerticalAccuracy(location));
+            dataBlock.setDoubleValue(6, location.hasSpeed() ? location.getSpeed() : Double.NaN);
+            dataBlock.setDoubleValue(7, location.hasBearing() ? location.getBearing() : Double.NaN);
+            String provider = location.getProvider();
+            if (provider != null && provider.length() > PROVIDER_LENGTH)
+                provider = provider.substring(0, PROVIDER_LENGTH);
+            dataBlock.setStringValue(8, provider);
+        }
+    }
+    
+    
+    static double getVerticalAccuracy(Location location)
+    {
+        if (getVertAccuracyMethod != null)
+        {
+            try
+            {
+                if ((Boolean)hasVertAccuracyMethod.invoke(location))
+                    return ((Number)getVertAccuracyMethod.invoke(location)).doubleValue();
+            }
+            catch (Exception e)
+            {
+                // ignore and report unknown accuracy
+            }
+        }
+        
+        return Double.NaN;
+    }
+    
+    
+    /*
+     * Must be called by subclasses when they start, with the handler
+     * used to send batches of fixes
+     */
+    protected void startPublishing(Handler handler)
+    {
+        publishHandler = handler;
+    }
+    
+    
+    /*
+     * Must be called by subclasses when they stop, to send fixes still waiting
+     */
+    protected void stopPublishing()
+    {
+        if (publishHandler != null)
+        {
+            publishHandler.removeCallbacks(flushTask);
+            publishHandler.post(flushTask);
+        }
+    }
+    
+    
+    /**
+     * Publishes the fix, unless it is within the deadband of the last one.<br/>
+     * When record recycling is enabled and fixes are not batched, the same
+     * record and event are sent every time, so listeners must copy the record
+     * if they need to keep it after handling the event, like with
+     * {@link ReusableSensorDataEvent}.
+     * @param location new fix
+     */
+    protected synchronized void publishFix(Location location)
+    {
+        if (!isOutsideDeadband(location))
+            return;
+        
+        // build and populate datablock
+        DataBlock dataBlock;
+        if (latestRecord == null)
+            dataBlock = posDataStruct.createDataBlock();
+        else if (reuseRecord)
+            dataBlock = latestRecord;
+        else
+            dataBlock = latestRecord.renew();
+        setLocationValues(dataBlock, location, extendedRecord);
+        
+        // history of past records (provider name is not stored)
+        if (history == null && historySize > 0)
+            history = new SampleHistory(historySize, dataBlock.getAtomCount() - (extendedRecord ? 1 : 0));
+        if (history != null)
+            history.add(dataBlock);
+        
+        // update latest record and send event (or wait for next flush)
+        latestRecord = dataBlock;
+        latestRecordTime = System.currentTimeMillis();
+        if (flushInterval > 0 && publishHandler != null)
+        {
+            pendingFixes.add(dataBlock);
+            if (pendingFixes.size() == 1)
+                publishHandler.postDelayed(flushTask, flushInterval);
+        }
+        else if (reusedEvent != null)
+        {
+            reusedEvent.reset(latestRecordTime, dataBlock);
+            eventHandler.publishEvent(reusedEvent);
+        }
+        else
+            eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+    
+    
+    /*
+     * Checks if the fix is further than the deadband distance from the last
+     * published one, or if the heartbeat interval has elapsed. Distance uses
+     * the equirectangular approximation, which is accurate enough for short
+     * distances and avoids trigonometric functions but one.
+     */
+    protected boolean isOutsideDeadband(Location location)
+    {
+        if (deadband <= 0 || latestRecord == null)
+            return true;
+        
+        double lastTime = latestRecord.getDoubleValue(0);
+        if (heartbeat > 0 && location.getTime() / 1000.0 - lastTime >= heartbeat)
+            return true;
+        
+        double lastLat = latestRecord.getDoubleValue(1);
+        double lastLon = latestRecord.getDoubleValue(2);
+        double dLon = location.getLongitude() - lastLon;
+        if (dLon > 180.0)
+            dLon -= 360.0;
+        else if (dLon < -180.0)
+            dLon += 360.0;
+        
+        double x = Math.toRadians(dLon) * Math.cos(Math.toRadians((location.getLatitude() + lastLat) / 2.0));
+        double y = Math.toRadians(location.getLatitude() - lastLat);
+        double dist2 = (x*x + y*y) * EARTH_RADIUS * EARTH_RADIUS;
+        return dist2 > deadband * deadband;
+    }
+    
+    
+    /*
+     * Sends all pending fixes in a single data event
+     */
+    protected synchronized void flushFixes()
+    {
+        if (pendingFixes.isEmpty())
+            return;
+        
+        DataBlock[] fixes = pendingFixes.toArray(new DataBlock[pendingFixes.size()]);
+        pendingFixes.clear();
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, fixes));
+    }
+    
+    
+    /*
+     * Override to set the provider name of records restored from history
+     */
+    protected String getProviderName()
+    {
+        return null;
+    }
+    
+    
+    /**
+     * Gets the records produced by this output after the given time, from the
+     * output history. This can be called from any thread.
+     * @param time julian time in seconds since 1970
+     * @return array of records, oldest first (empty if history is disabled)
+     */
+    public DataBlock[] getRecordsSince(double time)
+    {
+        SampleHistory history = this.history;
+        if (history == null)
+            return new DataBlock[0];
+        
+        DataBlock[] records = history.getRecordsSince(time, posDataStruct);
+        if (extendedRecord)
+        {
+            for (DataBlock rec: records)
+                rec.setStringValue(rec.getAtomCount() - 1, getProviderName());
+        }
+        return records;
+    }
+    
+    
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+    
+    
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return posDataStruct;
+    }
+    
+    
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return posEncoding;
+    }
+    
+    
+    @Override
+    public DataBlock getLatestRecord()
+    {
+        return latestRecord;
+    }
+    
+    
+    @Override
+    public long getLatestRecordTime()
+    {
+        return latestRecordTime;
+    }
+}
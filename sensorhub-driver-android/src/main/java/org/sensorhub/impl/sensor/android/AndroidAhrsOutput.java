@@ -0,0 +1,177 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.Vector;
+import org.sensorhub.algo.vecmath.Quat4d;
+import org.vast.swe.helper.GeoPosHelper;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing orientation computed on the
+ * device by a Madgwick AHRS filter, from raw gyrometer, accelerometer and
+ * magnetometer measurements. The filter runs on every gyro sample at the
+ * max hardware rate and results are published at the configured rate.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidAhrsOutput extends AndroidSensorOutput
+{
+    private static final double SQRT2_2 = Math.sqrt(2.0) / 2.0;
+    
+    Sensor[] sensors;
+    MadgwickAhrs ahrs;
+    Quat4d att = new Quat4d();
+    float[] accel = new float[3];
+    float[] mag = new float[3];
+    boolean hasAccel;
+    long lastGyroTime;
+    
+    
+    protected AndroidAhrsOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor gyroSensor, Sensor accelSensor, Sensor magSensor)
+    {
+        super(parentModule, aSensorManager, gyroSensor);
+        this.sensors = (magSensor != null) ?
+            new Sensor[] {gyroSensor, accelSensor, magSensor} :
+            new Sensor[] {gyroSensor, accelSensor};
+        this.name = "ahrs_orientation_data";
+        this.ahrs = new MadgwickAhrs(parentModule.getConfiguration().ahrsGain);
+        
+        // create output structure
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = fac.newDataRecord(2);
+        dataStruct.setName(getName());
+        dataStruct.setDefinition("http://sensorml.com/ont/swe/property/OrientationQuaternion");
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+
+        // attitude quaternion
+        Vector quat = fac.newQuatOrientationENU(null);
+        quat.setLocalFrame(parentSensor.localFrameURI);
+        dataStruct.addComponent("orient", quat);
+    }
+    
+    
+    @Override
+    protected double getConfiguredSamplingRate(AndroidSensorsConfig config)
+    {
+        return config.ahrsRate;
+    }
+    
+    
+    @Override
+    protected double getValueRange()
+    {
+        return 1.0;
+    }
+    
+    
+    @Override
+    protected double getValueResolution(int componentIndex)
+    {
+        // quaternion is computed by the filter, not measured by the gyro
+        return 0.0;
+    }
+    
+    
+    @Override
+    protected void registerListener(int rateUs, int maxLatencyUs, Handler eventHandler)
+    {
+        // filter always runs at max rate, rateUs is only used for publishing
+        ahrs.reset();
+        hasAccel = false;
+        lastGyroTime = 0;
+        for (int i = 0; i < 3; i++)
+            mag[i] = 0.0f;
+        
+        for (Sensor s: sensors)
+            sensorManager.registerListener(this, s, SensorManager.SENSOR_DELAY_FASTEST, maxLatencyUs, eventHandler);
+    }
+    
+    
+    @Override
+    protected void unregisterListener()
+    {
+        sensorManager.unregisterListener(this);
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        switch (e.sensor.getType())
+        {
+            case Sensor.TYPE_ACCELEROMETER:
+                System.arraycopy(e.values, 0, accel, 0, 3);
+                hasAccel = true;
+                return;
+                
+            case Sensor.TYPE_MAGNETIC_FIELD:
+                System.arraycopy(e.values, 0, mag, 0, 3);
+                return;
+                
+            case Sensor.TYPE_GYROSCOPE:
+                break;
+                
+            default:
+                return;
+        }
+        
+        // run filter on each gyro sample
+        long prevGyroTime = lastGyroTime;
+        lastGyroTime = e.timestamp;
+        if (prevGyroTime == 0 || !hasAccel)
+            return;
+        double dt = (e.timestamp - prevGyroTime) * 1e-9;
+        ahrs.update(e.values[0], e.values[1], e.values[2],
+                    accel[0], accel[1], accel[2],
+                    mag[0], mag[1], mag[2], dt);
+        
+        // only publish at requested rate
+        double sampleTime = getJulianTimeStamp(e.timestamp);
+        if (latestRecord != null && sampleTime - latestRecord.getDoubleValue(0) < samplingPeriod*0.99)
+            return;
+        
+        // convert from filter NWU frame to ENU (rotation of 90deg about Z)
+        Quat4d q = ahrs.q;
+        att.s = SQRT2_2 * (q.s - q.z);
+        att.x = SQRT2_2 * (q.x - q.y);
+        att.y = SQRT2_2 * (q.y + q.x);
+        att.z = SQRT2_2 * (q.z + q.s);
+        
+        // build and populate datablock
+        DataBlock dataBlock = nextRecord();
+        dataBlock.setDoubleValue(0, sampleTime);
+        dataBlock.setFloatValue(1, (float)att.x);
+        dataBlock.setFloatValue(2, (float)att.y);
+        dataBlock.setFloatValue(3, (float)att.z);
+        dataBlock.setFloatValue(4, (float)att.s);
+        
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
+    }
+}
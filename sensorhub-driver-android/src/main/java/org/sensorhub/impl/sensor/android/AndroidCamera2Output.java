@@ -77,7 +77,6 @@ public class AndroidCamera2Output extends AbstractSensorOutput<AndroidSensorsDri
     DataComponent dataStruct;
     DataEncoding dataEncoding;
     int samplingPeriod;
-    long systemTimeOffset = -1L;
     
     
     protected AndroidCamera2Output(AndroidSensorsDriver parentModule, CameraManager camManager, String cameraId, SurfaceHolder previewSurfaceHolder)
@@ -475,11 +474,6 @@ public class AndroidCamera2Output extends AbstractSensorOutput<AndroidSensorsDri
     
     protected final double getJulianTimeStamp(long sensorTimeStampNanos)
     {
-        long sensorTimeMillis = sensorTimeStampNanos / 1000000;
-        
-        if (systemTimeOffset < 0)
-            systemTimeOffset = System.currentTimeMillis() - sensorTimeMillis;
-            
-        return (systemTimeOffset + sensorTimeMillis) / 1000.;
+        return parentSensor.getTimeBase().getJulianTime(sensorTimeStampNanos);
     }
 }
@@ -0,0 +1,257 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.concurrent.atomic.AtomicReference;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.Vector;
+import org.vast.swe.helper.GeoPosHelper;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorManager;
+import android.location.Location;
+import android.location.LocationListener;
+import android.os.Bundle;
+import android.os.Handler;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing location at a higher rate than
+ * the location provider, by propagating the last fix with linear acceleration
+ * rotated to ENU frame using the rotation vector. The state is reset on each
+ * new fix, with velocity given by the fix or computed from the last two fixes.
+ * Propagation stops if no fix is received for deadReckoningMaxDuration.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidDeadReckoningOutput extends AndroidSensorOutput implements LocationListener
+{
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_E2 = 6.69437999014e-3;
+    
+    Sensor rotationSensor;
+    AndroidLocationOutput locationSource;
+    AtomicReference<Location> pendingFix = new AtomicReference<Location>();
+    long maxDuration; // ns
+    float[] rotMatrix = new float[9];
+    boolean hasRotation;
+    
+    // last fix and position/velocity in local ENU frame relative to it
+    boolean hasFix;
+    long fixTime;
+    long lastTime;
+    double lat0, lon0, alt0; // rad, rad, m
+    double metersPerRadLat, metersPerRadLon;
+    double[] pos = new double[3];
+    double[] vel = new double[3];
+    
+    
+    protected AndroidDeadReckoningOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor linAccelSensor, Sensor rotationSensor, AndroidLocationOutput locationSource)
+    {
+        super(parentModule, aSensorManager, linAccelSensor);
+        this.rotationSensor = rotationSensor;
+        this.locationSource = locationSource;
+        this.name = "interpolated_location_data";
+        this.maxDuration = (long)(parentModule.getConfiguration().deadReckoningMaxDuration * 1e9);
+        
+        // output structure (time + location)
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = fac.newDataRecord(2);
+        dataStruct.setName(getName());
+        dataStruct.setDefinition("http://sensorml.com/ont/swe/property/Location");
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        Vector vec = fac.newLocationVectorLLA(null);
+        vec.setLocalFrame(parentSensor.localFrameURI);
+        dataStruct.addComponent("location", vec);
+    }
+    
+    
+    @Override
+    protected double getConfiguredSamplingRate(AndroidSensorsConfig config)
+    {
+        return config.deadReckoningRate;
+    }
+    
+    
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        if (dataEncoding == null)
+            dataEncoding = newBinaryEncoding(dataStruct, DataType.DOUBLE);
+        return dataEncoding;
+    }
+    
+    
+    @Override
+    protected void registerListener(int rateUs, int maxLatencyUs, Handler eventHandler)
+    {
+        // propagation runs at game rate, rateUs is only used for publishing
+        hasFix = false;
+        hasRotation = false;
+        pendingFix.set(null);
+        locationSource.addFixListener(this);
+        
+        sensorManager.registerListener(this, sensor, SensorManager.SENSOR_DELAY_GAME, maxLatencyUs, eventHandler);
+        sensorManager.registerListener(this, rotationSensor, SensorManager.SENSOR_DELAY_GAME, maxLatencyUs, eventHandler);
+    }
+    
+    
+    @Override
+    protected void unregisterListener()
+    {
+        sensorManager.unregisterListener(this);
+        locationSource.removeFixListener(this);
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        switch (e.sensor.getType())
+        {
+            case Sensor.TYPE_ROTATION_VECTOR:
+                SensorManager.getRotationMatrixFromVector(rotMatrix, e.values);
+                hasRotation = true;
+                return;
+                
+            case Sensor.TYPE_LINEAR_ACCELERATION:
+                break;
+                
+            default:
+                return;
+        }
+        
+        // reset state when a new fix was received
+        Location fix = pendingFix.getAndSet(null);
+        if (fix != null)
+            resetToFix(fix);
+        
+        if (!hasFix || !hasRotation || e.timestamp <= lastTime)
+            return;
+        if (e.timestamp - fixTime > maxDuration)
+            return;
+        
+        // rotate acceleration to ENU frame and integrate
+        double dt = (e.timestamp - lastTime) * 1e-9;
+        lastTime = e.timestamp;
+        for (int i = 0; i < 3; i++)
+        {
+            double a = rotMatrix[3*i] * e.values[0] + rotMatrix[3*i+1] * e.values[1] + rotMatrix[3*i+2] * e.values[2];
+            pos[i] += (vel[i] + 0.5 * a * dt) * dt;
+            vel[i] += a * dt;
+        }
+        
+        // only publish at requested rate
+        double sampleTime = getJulianTimeStamp(e.timestamp);
+        if (latestRecord != null && sampleTime - latestRecord.getDoubleValue(0) < samplingPeriod*0.99)
+            return;
+        
+        // build and populate datablock
+        DataBlock dataBlock = nextRecord();
+        dataBlock.setDoubleValue(0, sampleTime);
+        dataBlock.setDoubleValue(1, Math.toDegrees(lat0 + pos[1] / metersPerRadLat));
+        dataBlock.setDoubleValue(2, Math.toDegrees(lon0 + pos[0] / metersPerRadLon));
+        dataBlock.setDoubleValue(3, alt0 + pos[2]);
+        
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
+    }
+    
+    
+    /*
+     * Restarts propagation from the given fix
+     */
+    protected void resetToFix(Location fix)
+    {
+        long t = fix.getElapsedRealtimeNanos();
+        double lat = Math.toRadians(fix.getLatitude());
+        double lon = Math.toRadians(fix.getLongitude());
+        double alt = fix.getAltitude();
+        
+        // use velocity from fix if available, or from the last two fixes
+        if (fix.hasSpeed() && fix.hasBearing())
+        {
+            double bearing = Math.toRadians(fix.getBearing());
+            vel[0] = fix.getSpeed() * Math.sin(bearing);
+            vel[1] = fix.getSpeed() * Math.cos(bearing);
+            vel[2] = 0.0;
+        }
+        else if (hasFix && t > fixTime)
+        {
+            double dt = (t - fixTime) * 1e-9;
+            vel[0] = (lon - lon0) * metersPerRadLon / dt;
+            vel[1] = (lat - lat0) * metersPerRadLat / dt;
+            vel[2] = (alt - alt0) / dt;
+        }
+        else
+        {
+            vel[0] = vel[1] = vel[2] = 0.0;
+        }
+        
+        // radii of curvature at fix location
+        double sinLat = Math.sin(lat);
+        double d = 1.0 - WGS84_E2 * sinLat * sinLat;
+        double n = WGS84_A / Math.sqrt(d);
+        double m = WGS84_A * (1.0 - WGS84_E2) / (d * Math.sqrt(d));
+        metersPerRadLat = m + alt;
+        metersPerRadLon = (n + alt) * Math.cos(lat);
+        
+        lat0 = lat;
+        lon0 = lon;
+        alt0 = alt;
+        pos[0] = pos[1] = pos[2] = 0.0;
+        fixTime = lastTime = t;
+        hasFix = true;
+    }
+
+
+    /*
+     * Called by the location output in its own thread, so the fix
+     * is only handed over to the sensor thread here
+     */
+    @Override
+    public void onLocationChanged(Location location)
+    {
+        pendingFix.set(location);
+    }
+
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras)
+    {
+    }
+
+
+    @Override
+    public void onProviderEnabled(String provider)
+    {
+    }
+
+
+    @Override
+    public void onProviderDisabled(String provider)
+    {
+    }
+}
@@ -0,0 +1,148 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing the best fix among all location
+ * providers. Fixes are ranked by their accuracy, degraded proportionally to
+ * their age, and a new fix is only published if it ranks better than the
+ * latest fixes of the other providers. Selected fixes are then published
+ * with the same deadband, batching and history settings as the provider
+ * outputs.<br/>
+ * Fixes are fed by the location outputs, in their own threads.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidFusedLocationOutput extends AbstractLocationOutput
+{
+    private static final double UNKNOWN_ACCURACY = 1000.0; // m
+    
+    List<AndroidLocationOutput> sources;
+    long maxAge; // ns
+    double ageFactor; // m/s
+    Map<String, Location> lastFixes = new HashMap<String, Location>();
+    
+    
+    protected AndroidFusedLocationOutput(AndroidSensorsDriver parentModule, List<AndroidLocationOutput> sources)
+    {
+        super(parentModule, "fused_location_data");
+        this.sources = sources;
+        
+        AndroidSensorsConfig config = parentModule.getConfiguration();
+        this.maxAge = (long)(config.fusedLocationMaxAge * 1e9);
+        this.ageFactor = config.fusedLocationAgeFactor;
+    }
+    
+    
+    @Override
+    public synchronized void onLocationChanged(Location location)
+    {
+        long now = SystemClock.elapsedRealtimeNanos();
+        lastFixes.put(location.getProvider(), location);
+        
+        // only publish new fix if no other recent fix is better
+        double score = getScore(location, now);
+        for (Location fix: lastFixes.values())
+        {
+            if (fix != location && now - fix.getElapsedRealtimeNanos() < maxAge && getScore(fix, now) < score)
+                return;
+        }
+        
+        publishFix(location);
+    }
+    
+    
+    /*
+     * Score is the accuracy radius increased by the distance that may have
+     * been travelled since the fix (lower is better)
+     */
+    protected double getScore(Location fix, long now)
+    {
+        double accuracy = fix.hasAccuracy() ? fix.getAccuracy() : UNKNOWN_ACCURACY;
+        double age = Math.max(0, now - fix.getElapsedRealtimeNanos()) * 1e-9;
+        return accuracy + ageFactor * age;
+    }
+    
+    
+    @Override
+    public void start(Handler eventHandler)
+    {
+        synchronized (this)
+        {
+            lastFixes.clear();
+        }
+        
+        startPublishing(eventHandler);
+        for (AndroidLocationOutput source: sources)
+            source.addFixListener(this);
+    }
+    
+    
+    @Override
+    public void stop()
+    {
+        for (AndroidLocationOutput source: sources)
+            source.removeFixListener(this);
+        
+        // send fixes still waiting
+        stopPublishing();
+    }
+    
+    
+    @Override
+    protected String getProviderName()
+    {
+        return "fused";
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        double period = Double.POSITIVE_INFINITY;
+        for (AndroidLocationOutput source: sources)
+            period = Math.min(period, source.getAverageSamplingPeriod());
+        return period;
+    }
+
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras)
+    {
+    }
+
+
+    @Override
+    public void onProviderEnabled(String provider)
+    {
+    }
+
+
+    @Override
+    public void onProviderDisabled(String provider)
+    {
+    }
+}
@@ -0,0 +1,223 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import android.location.Location;
+import android.location.LocationListener;
+import android.os.Bundle;
+import android.os.Handler;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.GeofenceConfig;
+import org.vast.data.TextEncodingImpl;
+import org.vast.swe.SWEHelper;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing geofence enter/exit events,
+ * computed on the device from the fixes of a location output. Geofence
+ * polygons are indexed in a uniform grid so each fix is only tested against
+ * the polygons overlapping its grid cell.<br/>
+ * All transitions caused by a fix are sent in a single data event.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidGeofenceOutput extends AbstractSensorOutput<AndroidSensorsDriver> implements IAndroidOutput, LocationListener
+{
+    public static final String EVENT_ENTER = "ENTER";
+    public static final String EVENT_EXIT = "EXIT";
+    
+    AndroidLocationOutput source;
+    String name;
+    DataComponent dataStruct;
+    DataEncoding dataEncoding;
+    GeofenceIndex index;
+    List<String> geofenceIds = new ArrayList<String>();
+    BitSet inside = new BitSet();
+    BitSet newInside = new BitSet();
+    List<DataBlock> transitions = new ArrayList<DataBlock>();
+    
+    
+    protected AndroidGeofenceOutput(AndroidSensorsDriver parentModule, AndroidLocationOutput source)
+    {
+        super(parentModule);
+        this.source = source;
+        this.name = "geofence_events";
+        
+        // index all valid polygons
+        AndroidSensorsConfig config = parentModule.getConfiguration();
+        if (!(config.geofenceCellSize > 0))
+            throw new IllegalArgumentException("Geofence cell size must be positive: " + config.geofenceCellSize);
+        index = new GeofenceIndex(config.geofenceCellSize);
+        for (GeofenceConfig geofence: config.geofences)
+        {
+            if (geofence.vertices == null || geofence.vertices.length < 6 || geofence.vertices.length % 2 != 0)
+            {
+                parentModule.getLogger().warn("Invalid polygon for geofence " + geofence.id);
+                continue;
+            }
+            
+            index.add(geofence.vertices);
+            geofenceIds.add(geofence.id);
+        }
+        index.build();
+        
+        // create output structure
+        SWEHelper fac = new SWEHelper();
+        DataRecord rec = fac.newDataRecord(3);
+        rec.setName(getName());
+        rec.setDefinition(SWEHelper.getPropertyUri("GeofenceEvent"));
+        rec.addComponent("time", fac.newTimeStampIsoUTC());
+        rec.addComponent("type", fac.createCategory()
+            .definition(SWEHelper.getPropertyUri("GeofenceTransition"))
+            .label("Transition Type")
+            .description("ENTER or EXIT")
+            .build());
+        rec.addComponent("geofence", fac.createCategory()
+            .definition(SWEHelper.getPropertyUri("GeofenceID"))
+            .label("Geofence ID")
+            .build());
+        this.dataStruct = rec;
+        
+        if (config.useBinaryEncoding)
+            dataEncoding = AndroidSensorOutput.newBinaryEncoding(dataStruct, DataType.DOUBLE);
+        else
+            dataEncoding = new TextEncodingImpl(",", "\n");
+    }
+    
+    
+    /*
+     * Called by the location output in its own thread
+     */
+    @Override
+    public void onLocationChanged(Location location)
+    {
+        double lat = location.getLatitude();
+        double lon = location.getLongitude();
+        double time = location.getTime() / 1000.0;
+        
+        newInside.clear();
+        index.findContaining(lat, lon, newInside);
+        
+        // exits
+        for (int p = inside.nextSetBit(0); p >= 0; p = inside.nextSetBit(p+1))
+        {
+            if (!newInside.get(p))
+                addTransition(time, EVENT_EXIT, p);
+        }
+        
+        // enters
+        for (int p = newInside.nextSetBit(0); p >= 0; p = newInside.nextSetBit(p+1))
+        {
+            if (!inside.get(p))
+                addTransition(time, EVENT_ENTER, p);
+        }
+        
+        BitSet tmp = inside;
+        inside = newInside;
+        newInside = tmp;
+        
+        // send all transitions in one event
+        if (!transitions.isEmpty())
+        {
+            DataBlock[] records = transitions.toArray(new DataBlock[transitions.size()]);
+            transitions.clear();
+            latestRecord = records[records.length - 1];
+            latestRecordTime = System.currentTimeMillis();
+            eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, records));
+        }
+    }
+    
+    
+    protected void addTransition(double time, String type, int polygonIndex)
+    {
+        DataBlock dataBlock = dataStruct.createDataBlock();
+        dataBlock.setDoubleValue(0, time);
+        dataBlock.setStringValue(1, type);
+        dataBlock.setStringValue(2, geofenceIds.get(polygonIndex));
+        transitions.add(dataBlock);
+    }
+    
+    
+    @Override
+    public void start(Handler eventHandler)
+    {
+        inside.clear();
+        source.addFixListener(this);
+    }
+    
+    
+    @Override
+    public void stop()
+    {
+        source.removeFixListener(this);
+    }
+    
+    
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return source.getAverageSamplingPeriod();
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras)
+    {
+    }
+
+
+    @Override
+    public void onProviderEnabled(String provider)
+    {
+    }
+
+
+    @Override
+    public void onProviderDisabled(String provider)
+    {
+    }
+}
@@ -0,0 +1,227 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataBlock;
+import org.vast.swe.helper.GeoPosHelper;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+
+/**
+ * <p>
+ * Implementation of data interface combining accelerometer, gyrometer and
+ * magnetometer measurements in a single record. Samples of the 3 sensors
+ * are linearly interpolated onto a common time base so that all 9 axes
+ * are given at the same time stamp. The last samples of each sensor are kept
+ * in a small ring buffer so that each tick is interpolated between the two
+ * samples that bracket it, even when sensors run at different rates or
+ * deliver samples in bursts.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidImuOutput extends AndroidSensorOutput
+{
+    private static final String ACCEL_UOM = "m/s2";
+    private static final String ANG_RATE_UOM = "rad/s";
+    private static final String MAG_FIELD_DEF = "http://sensorml.com/ont/swe/property/MagneticField";
+    private static final String MAG_FIELD_UOM = "uT";
+    private static final long MAX_TICK_LAG = 1000000000L; // ns
+    private static final int RING_SIZE = 32; // must be a power of 2
+    private static final int RING_MASK = RING_SIZE - 1;
+    
+    Sensor[] sensors;
+    
+    // latest samples of each sensor
+    long[][] times = new long[3][RING_SIZE];
+    float[][] values = new float[3][RING_SIZE*3];
+    int[] heads = new int[3]; // index of latest sample
+    int[] fills = new int[3]; // number of valid samples
+    long nextTick;
+    long tickPeriod;
+    
+    
+    protected AndroidImuOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor accelSensor, Sensor gyroSensor, Sensor magSensor)
+    {
+        super(parentModule, aSensorManager, accelSensor);
+        this.sensors = new Sensor[] {accelSensor, gyroSensor, magSensor};
+        this.name = "imu_data";
+        
+        // create output structure
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = fac.newDataRecord(4);
+        dataStruct.setName(getName());
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("accel", fac.newAccelerationVector(null, parentSensor.localFrameURI, ACCEL_UOM));
+        dataStruct.addComponent("omega", fac.newAngularVelocityVector(null, parentSensor.localFrameURI, ANG_RATE_UOM));
+        dataStruct.addComponent("mag", fac.newVector(
+                MAG_FIELD_DEF,
+                parentSensor.localFrameURI,
+                new String[] {"mx", "my", "mz"},
+                null,
+                new String[] {MAG_FIELD_UOM, MAG_FIELD_UOM, MAG_FIELD_UOM},
+                new String[] {"X", "Y", "Z"}
+        ));
+    }
+    
+    
+    @Override
+    protected double getConfiguredSamplingRate(AndroidSensorsConfig config)
+    {
+        return config.imuRate;
+    }
+    
+    
+    /*
+     * Record components after time stamp are the vectors of each sensor
+     */
+    private Sensor getComponentSensor(int componentIndex)
+    {
+        return (componentIndex > 0) ? sensors[componentIndex-1] : sensor;
+    }
+    
+    
+    @Override
+    protected double getValueRange(int componentIndex)
+    {
+        return getComponentSensor(componentIndex).getMaximumRange();
+    }
+    
+    
+    @Override
+    protected double getValueResolution(int componentIndex)
+    {
+        return getComponentSensor(componentIndex).getResolution();
+    }
+    
+    
+    @Override
+    protected void registerListener(int rateUs, int maxLatencyUs, Handler eventHandler)
+    {
+        tickPeriod = rateUs * 1000L;
+        nextTick = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            heads[i] = RING_MASK;
+            fills[i] = 0;
+        }
+        
+        for (Sensor s: sensors)
+            sensorManager.registerListener(this, s, rateUs, maxLatencyUs, eventHandler);
+    }
+    
+    
+    @Override
+    protected void unregisterListener()
+    {
+        sensorManager.unregisterListener(this);
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        int k;
+        switch (e.sensor.getType())
+        {
+            case Sensor.TYPE_ACCELEROMETER: k = 0; break;
+            case Sensor.TYPE_GYROSCOPE: k = 1; break;
+            case Sensor.TYPE_MAGNETIC_FIELD: k = 2; break;
+            default: return;
+        }
+        
+        // add sample to ring buffer of this sensor
+        int slot = (heads[k] + 1) & RING_MASK;
+        times[k][slot] = e.timestamp;
+        System.arraycopy(e.values, 0, values[k], slot*3, 3);
+        heads[k] = slot;
+        if (fills[k] < RING_SIZE)
+            fills[k]++;
+        
+        // wait until we have 2 samples from each sensor
+        // and only resample up to the oldest of the latest samples
+        long maxTick = Long.MAX_VALUE;
+        long minTick = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            if (fills[i] < 2)
+                return;
+            int oldest = (heads[i] - fills[i] + 1) & RING_MASK;
+            maxTick = Math.min(maxTick, times[i][heads[i]]);
+            minTick = Math.max(minTick, times[i][oldest]);
+        }
+        
+        // (re)start time base if needed, or if samples needed
+        // for next tick were already overwritten
+        if (nextTick == 0 || nextTick < minTick || maxTick - nextTick > MAX_TICK_LAG)
+            nextTick = minTick;
+        
+        while (nextTick <= maxTick)
+        {
+            DataBlock dataBlock = nextRecord();
+            dataBlock.setDoubleValue(0, getJulianTimeStamp(nextTick));
+            for (int i = 0; i < 3; i++)
+                interpolate(i, nextTick, dataBlock);
+            
+            // update latest record and send event (or add to current batch)
+            publishRecord(dataBlock);
+            nextTick += tickPeriod;
+        }
+    }
+    
+    
+    /*
+     * Linearly interpolates values of sensor k at time t and writes them to record
+     */
+    private void interpolate(int k, long t, DataBlock dataBlock)
+    {
+        // search backward for the samples bracketing t
+        int numSamples = fills[k];
+        int i1 = heads[k];
+        int i0 = i1;
+        for (int j = 1; j < numSamples; j++)
+        {
+            i0 = (heads[k] - j) & RING_MASK;
+            if (times[k][i0] <= t)
+                break;
+            i1 = i0;
+        }
+        
+        long t0 = times[k][i0];
+        long t1 = times[k][i1];
+        double a = (t1 > t0) ? (double)(t - t0) / (t1 - t0) : 1.0;
+        if (a < 0.0)
+            a = 0.0;
+        else if (a > 1.0)
+            a = 1.0;
+        
+        float[] v = values[k];
+        for (int j = 0; j < 3; j++)
+        {
+            float v0 = v[i0*3+j];
+            float v1 = v[i1*3+j];
+            dataBlock.setFloatValue(1+k*3+j, (float)(v0 + a*(v1 - v0)));
+        }
+    }
+}
@@ -14,15 +14,10 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.android;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import android.os.Handler;
-import net.opengis.swe.v20.DataBlock;
-import net.opengis.swe.v20.DataComponent;
-import net.opengis.swe.v20.DataEncoding;
-import net.opengis.swe.v20.Time;
-import net.opengis.swe.v20.Vector;
-import org.sensorhub.api.sensor.SensorDataEvent;
-import org.sensorhub.impl.sensor.AbstractSensorOutput;
-import org.vast.swe.helper.GeoPosHelper;
+import android.os.Looper;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
@@ -38,103 +33,128 @@ import android.os.Bundle;
  * @author Alex Robin <alex.robin@sensiasoftware.com>
  * @since Jan 18, 2015
  */
-public class AndroidLocationOutput extends AbstractSensorOutput<AndroidSensorsDriver> implements IAndroidOutput, LocationListener
+public class AndroidLocationOutput extends AbstractLocationOutput implements MotionDetector.MotionListener
 {
     LocationManager locManager;
     LocationProvider locProvider;
-    String name;
     boolean enabled;
-    DataComponent posDataStruct;
-    DataEncoding posEncoding;
+    boolean feederOnly; // only notifies fix listeners, set by driver before start
+    float maxAccuracy;
+    List<LocationListener> fixListeners = new CopyOnWriteArrayList<LocationListener>();
+    MotionDetector motionDetector;
+    long stationaryInterval;
+    Looper looper;
+    
+    // location request policy
+    long minTime;
+    float minDistance;
     
     
     protected AndroidLocationOutput(AndroidSensorsDriver parentModule, LocationManager locManager, LocationProvider locProvider)
     {
-        super(parentModule);
+        super(parentModule, locProvider.getName().replaceAll(" ", "_") + "_data");
         this.locManager = locManager;
         this.locProvider = locProvider;        
-        this.name = locProvider.getName().replaceAll(" ", "_") + "_data";
         
-        // output structure (time + location)
-        GeoPosHelper fac = new GeoPosHelper();
-        posDataStruct = fac.newDataRecord(2);
-        posDataStruct.setName(getName());
-        posDataStruct.setDefinition("http://sensorml.com/ont/swe/property/Location");
-        Time time = fac.newTimeStampIsoUTC();
-        posDataStruct.addComponent("time", time);
-        Vector vec = fac.newLocationVectorLLA(null);  
-        ((Vector)vec).setLocalFrame(parentSensor.localFrameURI);
-        posDataStruct.addComponent("location", vec);
+        // fixes less accurate than this are dropped
+        AndroidSensorsConfig config = parentModule.getConfiguration();
+        maxAccuracy = config.locationMaxAccuracy;
+        
+        // request policy
+        minTime = config.locationMinTime;
+        minDistance = config.locationMinDistance;
         
-        // output encoding
-        posEncoding = fac.newTextEncoding(",", "\n");
+        // slow down updates when device is not moving
+        motionDetector = parentModule.getMotionDetector();
+        stationaryInterval = config.stationaryLocationInterval;
     }
     
     
     @Override
-    public String getName()
+    public void start(Handler eventHandler)
     {
-        return name;
+        // request location data
+        startPublishing(eventHandler);
+        looper = eventHandler.getLooper();
+        requestUpdates(minTime);
+        
+        if (motionDetector != null)
+            motionDetector.addListener(this);
     }
     
     
-    @Override
-    public void start(Handler eventHandler)
+    protected void requestUpdates(long interval)
     {
-        // request location data
-        locManager.requestLocationUpdates(locProvider.getName(), 100, 0.0f, this, eventHandler.getLooper());
+        // this replaces the previous request if any
+        locManager.requestLocationUpdates(locProvider.getName(), interval, minDistance, this, looper);
     }
     
     
     @Override
     public void stop()
     {
+        if (motionDetector != null)
+            motionDetector.removeListener(this);
         locManager.removeUpdates(this);
+        
+        // send fixes still waiting
+        stopPublishing();
     }
-
-
+    
+    
+    /*
+     * Called in the thread of the motion detector
+     */
     @Override
-    public boolean isEnabled()
+    public void onMotionStateChanged(boolean moving)
     {
-        return enabled;
+        if (moving)
+            parentSensor.getLogger().debug("Motion detected, restoring " + getName() + " update rate");
+        else
+            parentSensor.getLogger().debug("Device stationary, slowing down " + getName() + " updates");
+        requestUpdates(moving ? minTime : stationaryInterval);
     }
 
 
     @Override
-    public double getAverageSamplingPeriod()
+    public boolean isEnabled()
     {
-        return 1.0;
+        return enabled;
     }
 
 
     @Override
-    public DataComponent getRecordDescription()
+    public double getAverageSamplingPeriod()
     {
-        return posDataStruct;
+        // providers usually don't send more than one fix per second
+        return Math.max(1.0, minTime / 1000.0);
     }
 
 
-    @Override
-    public DataEncoding getRecommendedEncoding()
+    /**
+     * Adds a listener notified of every fix received by this output,
+     * in the thread of this output
+     * @param listener
+     */
+    public void addFixListener(LocationListener listener)
     {
-        return posEncoding;
+        fixListeners.add(listener);
     }
-
     
-    @Override
-    public DataBlock getLatestRecord()
+    
+    public void removeFixListener(LocationListener listener)
     {
-        return latestRecord;
+        fixListeners.remove(listener);
     }
     
     
     @Override
-    public long getLatestRecordTime()
+    protected String getProviderName()
     {
-        return latestRecordTime;
+        return locProvider.getName();
     }
-
-
+    
+    
     @Override
     public void onLocationChanged(Location location)
     {
@@ -143,19 +163,17 @@ public class AndroidLocationOutput extends AbstractSensorOutput<AndroidSensorsDr
                   + location.getLongitude() + ", " +
                   + location.getAltitude()); */
         
-        double sampleTime = location.getTime() / 1000.0;
-                
-        // build and populate datablock
-        DataBlock dataBlock = posDataStruct.createDataBlock();
-        dataBlock.setDoubleValue(0, sampleTime);
-        dataBlock.setDoubleValue(1, location.getLatitude());
-        dataBlock.setDoubleValue(2, location.getLongitude());
-        dataBlock.setDoubleValue(3, location.getAltitude());        
-                
-        // update latest record and send event
-        latestRecord = dataBlock;
-        latestRecordTime = System.currentTimeMillis();
-        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+        // drop inaccurate fixes
+        if (maxAccuracy > 0 && (!location.hasAccuracy() || location.getAccuracy() > maxAccuracy))
+            return;
+        
+        // listeners get all fixes, even those not published
+        for (LocationListener listener: fixListeners)
+            listener.onLocationChanged(location);
+        
+        // no need to build records nobody receives
+        if (!feederOnly)
+            publishFix(location);
     }
 
 
@@ -15,7 +15,6 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 package org.sensorhub.impl.sensor.android;
 
 import net.opengis.swe.v20.DataBlock;
-import org.sensorhub.api.sensor.SensorDataEvent;
 import org.vast.swe.helper.GeoPosHelper;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
@@ -66,21 +65,29 @@ public class AndroidMagnetoOutput extends AndroidSensorOutput implements SensorE
 
 
     @Override
+    protected boolean isDecimationSupported()
+    {
+        return true;
+    }
+
+
+    @Override
     public void onSensorChanged(SensorEvent e)
     {
-        double sampleTime = getJulianTimeStamp(e.timestamp);
+        // only keep filtered samples at output rate if decimating
+        if (!filterSample(e.timestamp, e.values))
+            return;
+        
+        double sampleTime = getJulianTimeStamp(filteredTime);
         
         // build and populate datablock
-        DataBlock dataBlock = dataStruct.createDataBlock();
+        DataBlock dataBlock = nextRecord();
         dataBlock.setDoubleValue(0, sampleTime);
-        dataBlock.setFloatValue(1, e.values[0]);
-        dataBlock.setFloatValue(2, e.values[1]);
-        dataBlock.setFloatValue(3, e.values[2]);        
+        dataBlock.setFloatValue(1, filteredValues[0]);
+        dataBlock.setFloatValue(2, filteredValues[1]);
+        dataBlock.setFloatValue(3, filteredValues[2]);        
                 
-        // TODO since this sensor is high rate,we could package several records in a single event
-        // update latest record and send event
-        latestRecord = dataBlock;
-        latestRecordTime = System.currentTimeMillis();
-        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock)); 
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
     }    
 }
@@ -19,12 +19,8 @@ import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.Quantity;
 import net.opengis.swe.v20.Vector;
 import org.sensorhub.algo.vecmath.Quat4d;
-import org.sensorhub.algo.vecmath.Vect3d;
-import org.sensorhub.api.sensor.SensorDataEvent;
 import org.vast.swe.helper.GeoPosHelper;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 
 
@@ -36,17 +32,12 @@ import android.hardware.SensorManager;
  * @author Alex Robin <alex.robin@sensiasoftware.com>
  * @since Jan 18, 2015
  */
-public class AndroidOrientationEulerOutput extends AndroidSensorOutput implements SensorEventListener
+public class AndroidOrientationEulerOutput extends AndroidOrientationOutput
 {
-    // for euler computation
-    Quat4d att = new Quat4d();
-    Vect3d look = new Vect3d();
-    Vect3d euler = new Vect3d();
     
-    
-    protected AndroidOrientationEulerOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor)
+    protected AndroidOrientationEulerOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor, RotationVectorListener rotationListener)
     {
-        super(parentModule, aSensorManager, aSensor);
+        super(parentModule, aSensorManager, aSensor, rotationListener);
         this.name = "euler_orientation_data";
         
         // create output structure
@@ -84,60 +75,43 @@ public class AndroidOrientationEulerOutput extends AndroidSensorOutput implement
 
 
     @Override
-    public void onAccuracyChanged(Sensor sensor, int arg1)
-    {     
+    protected double getValueRange()
+    {
+        return 180.0;
     }
 
-    
+
     @Override
-    public void onSensorChanged(SensorEvent e)
+    protected void onOrientationChanged(long sensorTimeStampNanos, Quat4d att)
     {
-        double sampleTime = getJulianTimeStamp(e.timestamp);
-
-        // convert to quaternion + normalize
-        AndroidOrientationQuatOutput.getQuaternionFromVector(att, e.values);
-        att.normalize();
+        double sampleTime = getJulianTimeStamp(sensorTimeStampNanos);
         
-        // Y direction in phone ref frame
-        look.x = 0;
-        look.y = 1;
-        look.z = 0;
+        // compute needed terms of the rotation matrix from phone frame to ENU
+        // look direction is the Y axis of the phone, in ENU frame
+        double qw = att.s, qx = att.x, qy = att.y, qz = att.z;
+        double lookX = 2.0 * (qx*qy - qw*qz);
+        double lookY = 1.0 - 2.0 * (qx*qx + qz*qz);
+        double lookZ = 2.0 * (qy*qz + qw*qx);
+        double xAxisZ = 2.0 * (qx*qz - qw*qy);
+        double zAxisZ = 1.0 - 2.0 * (qx*qx + qy*qy);
         
-        // rotate to ENU
-        att.rotate(look, look);
-                
-        double heading = 90. - Math.toDegrees(Math.atan2(look.y, look.x)); 
-        if (heading > 180.)
-            heading -= 360.;
-        double pitch = 0.0;//Math.toDegrees(Math.atan2(look.y, look.x)) - 90.;
-        double roll = 0.0;
+        // heading is azimuth of look direction, clockwise from north
+        double heading = Math.toDegrees(Math.atan2(lookX, lookY));
         
-        /*double sqw = q.w*q.w;
-        double sqx = q.x*q.x;
-        double sqy = q.y*q.y;
-        double sqz = q.z*q.z;
-        System.out.println(q0);
-        euler.z = Math.atan2(2.0 * (q.x*q.y + q.z*q.W), sqx - sqy - sqz + sqw);     // heading
-        euler.y = Math.atan2(2.0 * (q.y*q.z + q.x*q.w), -sqx - sqy + sqz + sqw);    // pitch
-        euler.x = Math.asin(-2.0 * (q.x*q.z - q.y*q.w));                            // roll
-        euler.scale(180./Math.PI);
+        // pitch is elevation of look direction
+        double pitch = Math.toDegrees(Math.asin(Math.max(-1.0, Math.min(1.0, lookZ))));
         
-        double oldx = euler.x; // convert to ENU
-        euler.x = euler.y;
-        euler.y = oldx;
-        euler.z = -euler.z;*/
+        // roll is rotation about look direction, positive when right side goes down
+        double roll = Math.toDegrees(Math.atan2(-xAxisZ, zAxisZ));
         
         // build and populate datablock
-        DataBlock dataBlock = dataStruct.createDataBlock();
+        DataBlock dataBlock = nextRecord();
         dataBlock.setDoubleValue(0, sampleTime);
         dataBlock.setFloatValue(1, (float)heading);
         dataBlock.setFloatValue(2, (float)pitch);
         dataBlock.setFloatValue(3, (float)roll);
         
-        // TODO since this sensor is high rate, we could package several records in a single event
-        // update latest record and send event
-        latestRecord = dataBlock;
-        latestRecordTime = System.currentTimeMillis();
-        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock)); 
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
     }    
 }
@@ -0,0 +1,81 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import org.sensorhub.algo.vecmath.Quat4d;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+
+/**
+ * <p>
+ * Abstract base for outputs derived from the rotation vector sensor.
+ * These outputs receive a normalized attitude quaternion from a listener
+ * shared with other outputs using the same sensor.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public abstract class AndroidOrientationOutput extends AndroidSensorOutput
+{
+    RotationVectorListener rotationListener;
+    Quat4d att = new Quat4d();
+    
+    
+    protected AndroidOrientationOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor, RotationVectorListener rotationListener)
+    {
+        super(parentModule, aSensorManager, aSensor);
+        this.rotationListener = rotationListener;
+    }
+    
+    
+    /*
+     * Called by the shared listener with the normalized attitude quaternion.
+     * The quaternion object is shared and must not be modified.
+     */
+    protected abstract void onOrientationChanged(long sensorTimeStampNanos, Quat4d att);
+    
+    
+    @Override
+    protected void registerListener(int rateUs, int maxLatencyUs, Handler eventHandler)
+    {
+        rotationListener.addOutput(this, rateUs, maxLatencyUs, eventHandler);
+    }
+    
+    
+    @Override
+    protected void unregisterListener()
+    {
+        rotationListener.removeOutput(this);
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+    
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        // only used if this output is registered directly with the sensor manager
+        AndroidOrientationQuatOutput.getQuaternionFromVector(att, e.values);
+        att.normalize();
+        onOrientationChanged(e.timestamp, att);
+    }
+}
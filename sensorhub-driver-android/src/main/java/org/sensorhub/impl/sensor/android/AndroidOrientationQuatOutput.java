@@ -17,11 +17,8 @@ package org.sensorhub.impl.sensor.android;
 import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.Vector;
 import org.sensorhub.algo.vecmath.Quat4d;
-import org.sensorhub.api.sensor.SensorDataEvent;
 import org.vast.swe.helper.GeoPosHelper;
 import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 
 
@@ -33,9 +30,8 @@ import android.hardware.SensorManager;
  * @author Alex Robin <alex.robin@sensiasoftware.com>
  * @since Jan 18, 2015
  */
-public class AndroidOrientationQuatOutput extends AndroidSensorOutput implements SensorEventListener
+public class AndroidOrientationQuatOutput extends AndroidOrientationOutput
 {
-    Quat4d att = new Quat4d();
 
 
     public static void getQuaternionFromVector(Quat4d q, float[] rv)
@@ -55,9 +51,9 @@ public class AndroidOrientationQuatOutput extends AndroidSensorOutput implements
     }
     
     
-    protected AndroidOrientationQuatOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor)
+    protected AndroidOrientationQuatOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor, RotationVectorListener rotationListener)
     {
-        super(parentModule, aSensorManager, aSensor);
+        super(parentModule, aSensorManager, aSensor, rotationListener);
         this.name = "quat_orientation_data";
                 
         // create output structure
@@ -75,22 +71,19 @@ public class AndroidOrientationQuatOutput extends AndroidSensorOutput implements
 
 
     @Override
-    public void onAccuracyChanged(Sensor sensor, int arg1)
-    {     
+    protected double getValueRange()
+    {
+        return 1.0;
     }
 
-    
+
     @Override
-    public void onSensorChanged(SensorEvent e)
+    protected void onOrientationChanged(long sensorTimeStampNanos, Quat4d att)
     {
-        double sampleTime = getJulianTimeStamp(e.timestamp);
+        double sampleTime = getJulianTimeStamp(sensorTimeStampNanos);
         if (latestRecord != null && sampleTime - latestRecord.getDoubleValue(0) < samplingPeriod*0.99)
             return;
         
-        // convert to quaternion + normalize
-        getQuaternionFromVector(att, e.values);
-        att.normalize();
-        
         // this is the right formula to compute heading of back camera look direction
         //Vect3d look = new Vect3d(0,0,-1);
         //att.mulQVQtilde(look, look);
@@ -98,17 +91,14 @@ public class AndroidOrientationQuatOutput extends AndroidSensorOutput implements
         //System.out.println("heading=" + heading);
         
         // build and populate datablock
-        DataBlock dataBlock = dataStruct.createDataBlock();
+        DataBlock dataBlock = nextRecord();
         dataBlock.setDoubleValue(0, sampleTime);
         dataBlock.setFloatValue(1, (float)att.x);
         dataBlock.setFloatValue(2, (float)att.y);
         dataBlock.setFloatValue(3, (float)att.z);
         dataBlock.setFloatValue(4, (float)att.s); 
         
-        // TODO since this sensor is high rate,we could package several records in a single event
-        // update latest record and send event
-        latestRecord = dataBlock;
-        latestRecordTime = System.currentTimeMillis();
-        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock)); 
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
     }    
 }
@@ -0,0 +1,161 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import android.os.Handler;
+import net.opengis.swe.v20.BinaryBlock;
+import net.opengis.swe.v20.BinaryComponent;
+import net.opengis.swe.v20.BinaryEncoding;
+import net.opengis.swe.v20.ByteEncoding;
+import net.opengis.swe.v20.ByteOrder;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.vast.data.AbstractDataBlock;
+import org.vast.data.DataBlockCompressed;
+import org.vast.data.DataBlockMixed;
+import org.vast.swe.SWEHelper;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing the batches of another sensor
+ * output in compressed form, using {@link GorillaCodec}. Each record contains
+ * the time stamp of the first sample, the number of samples and the
+ * compressed bytes. Samples can be restored on the receiving side using
+ * {@link GorillaCodec#decode} with the record structure of the source output.
+ * <br/>Batches are fed by the source output in its sensor thread, so batching
+ * must be enabled with sensorBatchSize > 1. Only sources with flat records
+ * of at most 255 numerical values are supported.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidPackedBatchOutput extends AbstractSensorOutput<AndroidSensorsDriver> implements IAndroidOutput
+{
+    AndroidSensorOutput source;
+    String name;
+    DataComponent dataStruct;
+    DataEncoding dataEncoding;
+    GorillaCodec codec = new GorillaCodec();
+    
+    
+    protected AndroidPackedBatchOutput(AndroidSensorsDriver parentModule, AndroidSensorOutput source)
+    {
+        super(parentModule);
+        this.source = source;
+        this.name = source.getName() + "_packed";
+        GorillaCodec.checkStructure(source.getRecordDescription());
+        
+        // create output structure
+        SWEHelper fac = new SWEHelper();
+        DataRecord rec = fac.newDataRecord(3);
+        rec.setName(getName());
+        rec.setDefinition(source.getRecordDescription().getDefinition());
+        rec.setDescription("Batch of " + source.getName() + " records compressed with Gorilla codec");
+        rec.addComponent("time", fac.newTimeStampIsoUTC());
+        rec.addComponent("numSamples", fac.createCount()
+            .label("Number of Samples")
+            .build());
+        DataArray bytes = fac.newDataArray(1);
+        bytes.setElementType("byte", fac.newCount(DataType.BYTE));
+        rec.addComponent("data", bytes);
+        this.dataStruct = rec;
+        
+        // data array is sent as an opaque compressed block
+        BinaryEncoding encoding = fac.newBinaryEncoding();
+        encoding.setByteEncoding(ByteEncoding.RAW);
+        encoding.setByteOrder(ByteOrder.BIG_ENDIAN);
+        BinaryComponent timeMember = fac.newBinaryComponent();
+        timeMember.setRef("/time");
+        timeMember.setCdmDataType(DataType.DOUBLE);
+        encoding.addMemberAsComponent(timeMember);
+        BinaryComponent countMember = fac.newBinaryComponent();
+        countMember.setRef("/numSamples");
+        countMember.setCdmDataType(DataType.INT);
+        encoding.addMemberAsComponent(countMember);
+        BinaryBlock dataMember = fac.newBinaryBlock();
+        dataMember.setRef("/data");
+        dataMember.setCompression(GorillaCodec.COMPRESSION_ID);
+        encoding.addMemberAsBlock(dataMember);
+        this.dataEncoding = encoding;
+    }
+    
+    
+    /*
+     * Compresses and sends the first count records of the batch.
+     * Must be called from the source sensor thread.
+     */
+    protected void addBatch(DataBlock[] batch, int count)
+    {
+        DataBlock dataBlock = dataStruct.createDataBlock();
+        ((DataBlockMixed)dataBlock).getUnderlyingObject()[2] = new DataBlockCompressed();
+        dataBlock.setDoubleValue(0, batch[0].getDoubleValue(0));
+        dataBlock.setIntValue(1, count);
+        AbstractDataBlock data = ((DataBlockMixed)dataBlock).getUnderlyingObject()[2];
+        data.setUnderlyingObject(codec.encode(batch, count));
+        
+        // update latest record and send event
+        latestRecord = dataBlock;
+        latestRecordTime = System.currentTimeMillis();
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+    
+    
+    @Override
+    public void start(Handler eventHandler)
+    {
+        // batches are pushed by source output
+    }
+    
+    
+    @Override
+    public void stop()
+    {
+    }
+    
+    
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return source.getAverageSamplingPeriod() * parentSensor.getConfiguration().sensorBatchSize;
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+}
@@ -17,13 +17,28 @@ package org.sensorhub.impl.sensor.android;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Process;
+import net.opengis.swe.v20.BinaryComponent;
+import net.opengis.swe.v20.BinaryEncoding;
+import net.opengis.swe.v20.ByteEncoding;
+import net.opengis.swe.v20.ByteOrder;
+import net.opengis.swe.v20.Category;
+import net.opengis.swe.v20.Count;
+import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.ScalarComponent;
+import net.opengis.swe.v20.Time;
+import org.sensorhub.api.sensor.SensorDataEvent;
 import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.PublishPolicyConfig;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.QuantizationConfig;
 import org.vast.data.TextEncodingImpl;
+import org.vast.swe.SWEHelper;
 import android.hardware.Sensor;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import java.util.Arrays;
 
 
 /**
@@ -43,7 +58,35 @@ public abstract class AndroidSensorOutput extends AbstractSensorOutput<AndroidSe
     DataComponent dataStruct;
     DataEncoding dataEncoding;
     double samplingPeriod;
-    long systemTimeOffset = -1L;
+    
+    // batching of several records in a single event
+    Handler sensorHandler;
+    DataBlock[] batch;
+    int batchSize;
+    int batchCount;
+    long batchMaxDelay;
+    Runnable batchTimeout = new Runnable() {
+        public void run()
+        {
+            flushBatch();
+        }
+    };
+    
+    // recycling of records and events
+    DataBlock[] recordPool;
+    int recordPoolIndex;
+    ReusableSensorDataEvent[] eventPool;
+    int eventPoolIndex;
+    
+    volatile SampleHistory history; // created on first record
+    int historySize;
+    PublishPolicy publishPolicy;
+    DecimationFilter decimator;
+    long filteredTime;
+    float[] filteredValues;
+    AndroidSensorStatsOutput statsOutput;
+    AndroidPackedBatchOutput packedOutput;
+    Quantizer quantizer;
     
     
     protected AndroidSensorOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor)
@@ -52,7 +95,25 @@ public abstract class AndroidSensorOutput extends AbstractSensorOutput<AndroidSe
         this.sensorManager = aSensorManager;
         this.sensor = aSensor;
         this.name = sensor.getName().replaceAll(" ", "_") + "_data";
-        this.dataEncoding = new TextEncodingImpl(",", "\n");
+        
+        // binary encoding is generated when record structure is known
+        AndroidSensorsConfig config = parentModule.getConfiguration();
+        if (!config.useBinaryEncoding)
+            this.dataEncoding = new TextEncodingImpl(",", "\n");
+        
+        this.batchSize = Math.max(1, config.sensorBatchSize);
+        this.batchMaxDelay = config.sensorBatchMaxDelay;
+        if (batchSize > 1)
+            this.batch = new DataBlock[batchSize];
+        
+        this.historySize = config.outputHistorySize;
+        
+        // records of the batch being filled cannot be reused either
+        if (config.sensorRecordPoolSize > 0)
+        {
+            this.eventPool = new ReusableSensorDataEvent[config.sensorRecordPoolSize];
+            this.recordPool = new DataBlock[(config.sensorRecordPoolSize + 1) * batchSize];
+        }
     }
     
     
@@ -66,17 +127,129 @@ public abstract class AndroidSensorOutput extends AbstractSensorOutput<AndroidSe
     @Override
     public void start(Handler eventHandler)
     {
-        // max 10Hz events
-        int rateUs = Math.max(sensor.getMinDelay(), 100000);
+        AndroidSensorsConfig config = parentSensor.getConfiguration();
+        
+        // use configured rate, within the limits supported by the sensor
+        int rateUs = sensor.getMinDelay();
+        double rate = getConfiguredSamplingRate(config);
+        if (rate > 0)
+            rateUs = Math.max(rateUs, (int)(1e6 / rate));
+        if (sensor.getMaxDelay() > 0)
+            rateUs = Math.min(rateUs, sensor.getMaxDelay());
         samplingPeriod = rateUs / 1e6;
-        sensorManager.registerListener(this, sensor, rateUs, eventHandler);
+        
+        // if decimating, sample at max rate and filter down to requested rate
+        decimator = null;
+        if (config.sensorDecimation && isDecimationSupported() && sensor.getMinDelay() > 0)
+        {
+            int factor = Math.round((float)rateUs / sensor.getMinDelay());
+            if (factor > 1)
+            {
+                rateUs = sensor.getMinDelay();
+                decimator = new DecimationFilter(factor, 3);
+                samplingPeriod = rateUs * decimator.getTotalFactor() / 1e6;
+            }
+        }
+        
+        // let the sensor hub batch samples in its FIFO if it has one
+        int maxLatencyUs = 0;
+        if (sensor.getFifoMaxEventCount() > 0)
+            maxLatencyUs = config.sensorMaxReportLatency * 1000;
+        
+        // output name can be changed by subclasses after construction
+        publishPolicy = null;
+        for (PublishPolicyConfig policyConfig: config.publishPolicies)
+        {
+            if (policyConfig.outputName != null && getName().matches(policyConfig.outputName))
+            {
+                publishPolicy = new PublishPolicy(policyConfig);
+                break;
+            }
+        }
+        
+        sensorHandler = eventHandler;
+        registerListener(rateUs, maxLatencyUs, eventHandler);
+    }
+    
+    
+    /*
+     * Override to return true in outputs that call filterSample()
+     */
+    protected boolean isDecimationSupported()
+    {
+        return false;
+    }
+    
+    
+    /*
+     * Feeds a new 3-axis sample to the decimation filter, if any.
+     * Returns false if no record should be produced for this sample,
+     * otherwise the sample to output is in filteredTime and filteredValues
+     */
+    protected boolean filterSample(long timeStamp, float[] values)
+    {
+        if (decimator != null)
+        {
+            if (!decimator.push(timeStamp, values))
+                return false;
+            filteredTime = decimator.outputTime;
+            filteredValues = decimator.output;
+        }
+        else
+        {
+            filteredTime = timeStamp;
+            filteredValues = values;
+        }
+        
+        return true;
+    }
+    
+    
+    protected void registerListener(int rateUs, int maxLatencyUs, Handler eventHandler)
+    {
+        sensorManager.registerListener(this, sensor, rateUs, maxLatencyUs, eventHandler);
+    }
+    
+    
+    protected void unregisterListener()
+    {
+        sensorManager.unregisterListener(this, sensor);
+    }
+    
+    
+    protected double getConfiguredSamplingRate(AndroidSensorsConfig config)
+    {
+        switch (sensor.getType())
+        {
+            case Sensor.TYPE_ACCELEROMETER:
+                return config.accelerometerRate;
+                
+            case Sensor.TYPE_GYROSCOPE:
+                return config.gyrometerRate;
+                
+            case Sensor.TYPE_MAGNETIC_FIELD:
+                return config.magnetometerRate;
+                
+            case Sensor.TYPE_ROTATION_VECTOR:
+                return config.orientationRate;
+                
+            default:
+                return 10.0;
+        }
     }
     
     
     @Override
     public void stop()
     {
-        sensorManager.unregisterListener(this, sensor);
+        unregisterListener();
+        
+        // send records still waiting in current batch
+        if (sensorHandler != null)
+        {
+            sensorHandler.removeCallbacks(batchTimeout);
+            sensorHandler.post(batchTimeout);
+        }
     }
 
 
@@ -97,17 +270,249 @@ public abstract class AndroidSensorOutput extends AbstractSensorOutput<AndroidSe
     @Override
     public DataEncoding getRecommendedEncoding()
     {
+        if (dataEncoding == null)
+            dataEncoding = newBinaryEncoding(dataStruct, quantizer != null ? quantizer.dataType : DataType.FLOAT);
         return dataEncoding;
     }
     
     
-    protected final double getJulianTimeStamp(long sensorTimeStampNanos)
+    /*
+     * Switches this output to fixed-point values. This modifies units of the
+     * record structure so it must be called before the output is used.
+     * Quantized records are always sent with binary encoding since text
+     * encoding would not make them any smaller.
+     */
+    protected void setQuantization(QuantizationConfig config)
     {
-        long sensorTimeMillis = sensorTimeStampNanos / 1000000;
+        int numComponents = dataStruct.getComponentCount();
+        double[] resolutions = new double[numComponents];
+        double[] ranges = new double[numComponents];
+        for (int i = 0; i < numComponents; i++)
+        {
+            if (config.componentResolutions != null && i > 0 && i <= config.componentResolutions.length)
+                resolutions[i] = config.componentResolutions[i-1];
+            else
+                resolutions[i] = config.resolution;
+            
+            if (resolutions[i] <= 0)
+                resolutions[i] = getValueResolution(i);
+            ranges[i] = getValueRange(i);
+        }
         
-        if (systemTimeOffset < 0)
-            systemTimeOffset = System.currentTimeMillis() - sensorTimeMillis;
+        quantizer = new Quantizer(dataStruct, resolutions, ranges, config.useInt32);
+        dataEncoding = null;
+    }
+    
+    
+    /*
+     * Override to return the max absolute value of outputs not reporting
+     * values in the range of the sensor
+     */
+    protected double getValueRange()
+    {
+        return sensor.getMaximumRange();
+    }
+    
+    
+    /*
+     * Override to return the range of a given top-level record component
+     * in outputs combining values from several sensors
+     */
+    protected double getValueRange(int componentIndex)
+    {
+        return getValueRange();
+    }
+    
+    
+    /*
+     * Override to return the resolution of a given top-level record component
+     * in outputs combining values from several sensors
+     */
+    protected double getValueResolution(int componentIndex)
+    {
+        return sensor.getResolution();
+    }
+    
+    
+    /*
+     * Generates a raw binary encoding for the given record, with time stamps
+     * encoded as double, counts as int, categories as ASCII strings and all
+     * other scalar values using the given type
+     */
+    static BinaryEncoding newBinaryEncoding(DataComponent dataStruct, DataType valueType)
+    {
+        SWEHelper fac = new SWEHelper();
+        BinaryEncoding encoding = fac.newBinaryEncoding();
+        encoding.setByteEncoding(ByteEncoding.RAW);
+        encoding.setByteOrder(ByteOrder.BIG_ENDIAN);
+        addBinaryMembers(fac, encoding, dataStruct, "", valueType);
+        return encoding;
+    }
+    
+    
+    private static void addBinaryMembers(SWEHelper fac, BinaryEncoding encoding, DataComponent parent, String parentPath, DataType valueType)
+    {
+        for (int i = 0; i < parent.getComponentCount(); i++)
+        {
+            DataComponent child = parent.getComponent(i);
+            String path = parentPath + "/" + child.getName();
             
-        return (systemTimeOffset + sensorTimeMillis) / 1000.;
+            if (child instanceof ScalarComponent)
+            {
+                BinaryComponent member = fac.newBinaryComponent();
+                member.setRef(path);
+                if (child instanceof Time)
+                    member.setCdmDataType(DataType.DOUBLE);
+                else if (child instanceof Count)
+                    member.setCdmDataType(DataType.INT);
+                else if (child instanceof Category)
+                    member.setCdmDataType(DataType.ASCII_STRING);
+                else
+                    member.setCdmDataType(valueType);
+                encoding.addMemberAsComponent(member);
+            }
+            else
+                addBinaryMembers(fac, encoding, child, path, valueType);
+        }
+    }
+    
+    
+    /**
+     * Gets the records produced by this output after the given time, from the
+     * output history. This can be called from any thread.
+     * @param time julian time in seconds since 1970
+     * @return array of records, oldest first (empty if history is disabled)
+     */
+    public DataBlock[] getRecordsSince(double time)
+    {
+        if (history == null)
+            return new DataBlock[0];
+        return history.getRecordsSince(time, dataStruct);
+    }
+    
+    
+    @Override
+    public DataBlock getLatestRecord()
+    {
+        // return a copy since recycled records are overwritten by the sensor thread
+        DataBlock rec = latestRecord;
+        if (recordPool != null && rec != null)
+            return rec.clone();
+        return rec;
+    }
+    
+    
+    /*
+     * Gets a record to be populated with a new sample, either a newly allocated
+     * one or the next one in the pool if recycling is enabled.
+     */
+    protected DataBlock nextRecord()
+    {
+        if (recordPool == null)
+            return dataStruct.createDataBlock();
+        
+        DataBlock rec = recordPool[recordPoolIndex];
+        if (rec == null)
+            rec = recordPool[recordPoolIndex] = dataStruct.createDataBlock();
+        recordPoolIndex = (recordPoolIndex + 1) % recordPool.length;
+        return rec;
+    }
+    
+    
+    protected ReusableSensorDataEvent nextEvent()
+    {
+        ReusableSensorDataEvent e = eventPool[eventPoolIndex];
+        if (e == null)
+            e = eventPool[eventPoolIndex] = new ReusableSensorDataEvent(this, batchSize);
+        eventPoolIndex = (eventPoolIndex + 1) % eventPool.length;
+        return e;
+    }
+    
+    
+    /*
+     * Updates latest record and sends it in a data event, or adds it to the
+     * current batch if batching is enabled. Records rejected by the publish
+     * policy are dropped, but still used to compute stats if enabled.
+     * Must be called from sensor thread.
+     */
+    protected void publishRecord(DataBlock dataBlock)
+    {
+        // stats are computed on all records, with physical values
+        if (statsOutput != null)
+            statsOutput.addRecord(dataBlock);
+        
+        if (publishPolicy != null && !publishPolicy.accept(dataBlock))
+            return;
+        
+        // quantize only what is kept or sent
+        if (quantizer != null)
+            quantizer.quantize(dataBlock);
+        
+        // use sample time to avoid reading system clock for every sample
+        latestRecord = dataBlock;
+        latestRecordTime = (long)(dataBlock.getDoubleValue(0) * 1000);
+        
+        if (history == null && historySize > 0)
+            history = new SampleHistory(historySize, dataBlock.getAtomCount());
+        if (history != null)
+            history.add(dataBlock);
+        
+        if (batch == null)
+        {
+            if (eventPool != null)
+            {
+                ReusableSensorDataEvent e = nextEvent();
+                e.reset(latestRecordTime, dataBlock);
+                eventHandler.publishEvent(e);
+            }
+            else
+                eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+            return;
+        }
+        
+        // make sure a partial batch is not held longer than max delay
+        if (batchCount == 0 && sensorHandler != null)
+            sensorHandler.postDelayed(batchTimeout, batchMaxDelay);
+        
+        batch[batchCount++] = dataBlock;
+        if (batchCount >= batchSize)
+            flushBatch();
+    }
+    
+    
+    /*
+     * Sends all records of the current batch in a single data event
+     */
+    protected void flushBatch()
+    {
+        if (batchCount == 0)
+            return;
+        
+        if (sensorHandler != null)
+            sensorHandler.removeCallbacks(batchTimeout);
+        
+        // only full batches use recycled events
+        SensorDataEvent e;
+        if (eventPool != null && batchCount == batchSize)
+        {
+            ReusableSensorDataEvent reusedEvent = nextEvent();
+            reusedEvent.reset(latestRecordTime, batch);
+            e = reusedEvent;
+        }
+        else
+            e = new SensorDataEvent(latestRecordTime, this, Arrays.copyOf(batch, batchCount));
+        
+        if (packedOutput != null)
+            packedOutput.addBatch(batch, batchCount);
+        
+        Arrays.fill(batch, 0, batchCount, null);
+        batchCount = 0;
+        eventHandler.publishEvent(e);
+    }
+    
+    
+    protected final double getJulianTimeStamp(long sensorTimeStampNanos)
+    {
+        return parentSensor.getTimeBase().getJulianTime(sensorTimeStampNanos);
     }
 }
@@ -0,0 +1,251 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.ArrayList;
+import java.util.List;
+import android.os.Handler;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.ScalarComponent;
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.vast.data.TextEncodingImpl;
+import org.vast.swe.helper.GeoPosHelper;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing statistics of the values
+ * produced by another sensor output over fixed time windows. For each value
+ * of the source output, min, max, mean, RMS and standard deviation are
+ * computed in a single pass with Welford running accumulators.<br/>
+ * Records are fed by the source output in its sensor thread. Sources with
+ * array values are not supported since their number of values can vary.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidSensorStatsOutput extends AbstractSensorOutput<AndroidSensorsDriver> implements IAndroidOutput
+{
+    static final String[] STAT_NAMES = {"min", "max", "mean", "rms", "stddev"};
+    
+    AndroidSensorOutput source;
+    String name;
+    DataComponent dataStruct;
+    DataEncoding dataEncoding;
+    double windowDuration;
+    
+    // running accumulators for each value
+    int numValues;
+    int count;
+    double windowStart = Double.NaN;
+    double[] min;
+    double[] max;
+    double[] mean;
+    double[] m2;
+    
+    
+    protected AndroidSensorStatsOutput(AndroidSensorsDriver parentModule, AndroidSensorOutput source)
+    {
+        super(parentModule);
+        this.source = source;
+        this.name = source.getName() + "_stats";
+        this.windowDuration = parentModule.getConfiguration().statsWindow;
+        
+        // collect all scalar values of source record, except time stamp
+        List<ScalarComponent> values = new ArrayList<ScalarComponent>();
+        collectScalars(source.getRecordDescription(), values);
+        values.remove(0);
+        
+        this.numValues = values.size();
+        this.min = new double[numValues];
+        this.max = new double[numValues];
+        this.mean = new double[numValues];
+        this.m2 = new double[numValues];
+        
+        // create output structure
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = fac.newDataRecord(numValues + 2);
+        dataStruct.setName(getName());
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("numSamples", fac.createCount()
+            .label("Number of Samples")
+            .description("Number of samples in window")
+            .build());
+        
+        // one stats record per source value, with same units
+        for (ScalarComponent value: values)
+        {
+            DataRecord stats = fac.newDataRecord(STAT_NAMES.length);
+            for (String statName: STAT_NAMES)
+            {
+                ScalarComponent stat = (ScalarComponent)value.copy();
+                stat.setLabel(value.getLabel() != null ? value.getLabel() + " " + statName : statName);
+                stats.addComponent(statName, stat);
+            }
+            dataStruct.addComponent(value.getName(), stats);
+        }
+        
+        if (parentModule.getConfiguration().useBinaryEncoding)
+            dataEncoding = AndroidSensorOutput.newBinaryEncoding(dataStruct, DataType.FLOAT);
+        else
+            dataEncoding = new TextEncodingImpl(",", "\n");
+    }
+    
+    
+    private static void collectScalars(DataComponent parent, List<ScalarComponent> scalars)
+    {
+        for (int i = 0; i < parent.getComponentCount(); i++)
+        {
+            DataComponent child = parent.getComponent(i);
+            if (child instanceof DataArray)
+                throw new IllegalArgumentException("Statistics of array values are not supported: " + child.getName());
+            else if (child instanceof ScalarComponent)
+                scalars.add((ScalarComponent)child);
+            else
+                collectScalars(child, scalars);
+        }
+    }
+    
+    
+    /*
+     * Adds a record of the source output to the current window.
+     * Must be called from the source sensor thread.
+     */
+    protected void addRecord(DataBlock rec)
+    {
+        double time = rec.getDoubleValue(0);
+        
+        // send stats of previous window when a new one starts
+        if (!Double.isNaN(windowStart) && time >= windowStart + windowDuration)
+        {
+            publishStats();
+            count = 0;
+        }
+        
+        if (count == 0)
+            windowStart = time;
+        count++;
+        
+        for (int i = 0; i < numValues; i++)
+        {
+            double val = rec.getDoubleValue(i+1);
+            if (count == 1)
+            {
+                min[i] = max[i] = mean[i] = val;
+                m2[i] = 0.0;
+                continue;
+            }
+            
+            if (val < min[i])
+                min[i] = val;
+            if (val > max[i])
+                max[i] = val;
+            
+            double delta = val - mean[i];
+            mean[i] += delta / count;
+            m2[i] += delta * (val - mean[i]);
+        }
+    }
+    
+    
+    protected void publishStats()
+    {
+        DataBlock dataBlock = dataStruct.createDataBlock();
+        int idx = 0;
+        dataBlock.setDoubleValue(idx++, windowStart);
+        dataBlock.setIntValue(idx++, count);
+        
+        for (int i = 0; i < numValues; i++)
+        {
+            double variance = m2[i] / count;
+            dataBlock.setDoubleValue(idx++, min[i]);
+            dataBlock.setDoubleValue(idx++, max[i]);
+            dataBlock.setDoubleValue(idx++, mean[i]);
+            dataBlock.setDoubleValue(idx++, Math.sqrt(mean[i]*mean[i] + variance));
+            dataBlock.setDoubleValue(idx++, Math.sqrt(variance));
+        }
+        
+        // update latest record and send event
+        latestRecord = dataBlock;
+        latestRecordTime = System.currentTimeMillis();
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+    
+    
+    @Override
+    public void start(Handler eventHandler)
+    {
+        // records are pushed by source output
+        count = 0;
+        windowStart = Double.NaN;
+    }
+    
+    
+    @Override
+    public void stop()
+    {
+        // send stats of last partial window from source thread,
+        // after records still pending in source thread were added
+        Runnable flush = new Runnable() {
+            public void run()
+            {
+                if (count > 0)
+                {
+                    publishStats();
+                    count = 0;
+                }
+            }
+        };
+        
+        if (source.sensorHandler != null)
+            source.sensorHandler.post(flush);
+        else
+            flush.run();
+    }
+    
+    
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return windowDuration;
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+}
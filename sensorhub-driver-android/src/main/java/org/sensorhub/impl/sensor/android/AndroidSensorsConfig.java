@@ -21,6 +21,9 @@ import org.sensorhub.impl.sensor.android.video.VideoEncoderConfig;
 
 import android.content.Context;
 
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * <p>
@@ -32,17 +35,154 @@ import android.content.Context;
  */
 public class AndroidSensorsConfig extends SensorConfig
 {     
+    public static class OutputThreadConfig
+    {
+        public String name;
+        public int priority = 0; // android.os.Process thread priority, from -20 (highest) to 19
+        public List<String> outputNames = new ArrayList<>(); // regex matching output names
+    }
+
+    public static class CaptureTriggerConfig
+    {
+        public String sensor = "ACCEL"; // ACCEL or GYRO
+        public double threshold = 10.0; // m/s2 or rad/s
+        public double offset = 9.81; // subtracted from vector magnitude (gravity for ACCEL, 0 for GYRO)
+        public double preTriggerDuration = 1.0; // s
+        public double postTriggerDuration = 2.0; // s
+        public double samplingRate = 0.0; // Hz, 0 = max rate
+    }
+
+    public static class PublishPolicyConfig
+    {
+        public String outputName; // regex matching output names
+        public double[] absDeadband; // per value (excluding time), or a single value for all
+        public double[] relDeadband; // fraction of last published value
+        public double minInterval = 0.0; // s
+        public double maxSilence = 0.0; // s, 0 = no heartbeat
+    }
+
+    public static class GeofenceConfig
+    {
+        public String id;
+        public double[] vertices; // polygon as lat1, lon1, lat2, lon2... (deg)
+    }
+
+    public static class QuantizationConfig
+    {
+        public String outputName; // regex matching output names
+        public double resolution = 0.0; // in output units, 0 = sensor resolution (rounded up to a power of 10)
+        public double[] componentResolutions; // optional, one per record component after time stamp (e.g. accel, omega, mag)
+        public boolean useInt32 = false; // 32-bit instead of 16-bit integers
+    }
+
     public boolean activateAccelerometer = false;
     public boolean activateGyrometer = false;
     public boolean activateMagnetometer = false;
     public boolean activateOrientationQuat = true;
     public boolean activateOrientationEuler = true;
+    public boolean activateImu = false;
+    public boolean activateAhrs = false;
+    public boolean activateVibrationSpectrum = false;
     public boolean activateGpsLocation = true;
+    public boolean activateFusedLocation = false; // provider outputs then only feed the fused output
+    public boolean activateDeadReckoning = false;
     public boolean activateNetworkLocation = false;
     public boolean activateBackCamera = false;
     public boolean activateFrontCamera = false;
     public VideoEncoderConfig videoConfig = new VideoEncoderConfig();
     public boolean outputVideoRoll = false;
+
+    // sampling rates of sensor outputs (Hz, 0 = max rate supported by sensor)
+    public double accelerometerRate = 10.0;
+    public double gyrometerRate = 10.0;
+    public double magnetometerRate = 10.0;
+    public double orientationRate = 10.0;
+    public double imuRate = 50.0;
+    public double ahrsRate = 50.0;
+    public double ahrsGain = 0.1; // Madgwick filter beta
+
+    // add accuracy, speed, bearing and provider fields to location records
+    public boolean locationQualityFields = false;
+    public float locationMaxAccuracy = 0.0f; // m, less accurate fixes are dropped (0 = no filtering)
+
+    // only publish fixes further than deadband from the last published one, or after heartbeat interval
+    public double locationDeadband = 0.0; // m, 0 = publish all fixes
+    public double locationHeartbeat = 60.0; // s, 0 = no heartbeat
+
+    // location request policy (flush interval > 0 sends all fixes received during interval in a single event)
+    public long locationMinTime = 100; // ms
+    public float locationMinDistance = 0.0f; // m
+    public long locationFlushInterval = 0; // ms
+
+    // slow down location updates when accelerometer shows device is stationary
+    // (accelerometer is also turned off while stationary if a significant motion sensor exists)
+    public boolean locationDutyCycling = false;
+    public double motionThreshold = 0.3; // m/s2, deviation from mean acceleration
+    public double stationaryDelay = 30.0; // s, time without motion before slowing down
+    public long stationaryLocationInterval = 60000; // ms
+
+    // best fix among location providers (accuracy is degraded by age * ageFactor)
+    public double fusedLocationMaxAge = 30.0; // s
+    public double fusedLocationAgeFactor = 5.0; // m/s
+
+    // geofences checked on device against location fixes (enter/exit events are sent in a separate output)
+    public List<GeofenceConfig> geofences = new ArrayList<>();
+    public double geofenceCellSize = 0.01; // deg, size of grid cells used to index polygons
+
+    // location propagated between fixes with linear acceleration and rotation vector
+    public double deadReckoningRate = 30.0; // Hz
+    public double deadReckoningMaxDuration = 10.0; // s, max time without fix
+
+    // vibration spectrum computed from accelerometer
+    public double spectrumSamplingRate = 0.0; // Hz, 0 = max rate
+    public int spectrumWindowSize = 256; // samples, must be a power of 2
+    public double spectrumOverlap = 0.5; // fraction of window
+    public String spectrumMode = AndroidVibrationSpectrumOutput.MODE_BANDS; // BANDS or PEAKS
+    public int spectrumNumBands = 16;
+    public int spectrumNumPeaks = 5;
+
+    // sample accelerometer, gyrometer and magnetometer at max hardware rate and
+    // low-pass filter/decimate to the rates above instead of sampling at lower rate
+    public boolean sensorDecimation = false;
+
+    // max time samples can wait in the sensor hardware FIFO (0 = no hardware batching)
+    public int sensorMaxReportLatency = 0; // ms
+
+    // threads handling sensor callbacks of specific outputs
+    // (outputs not listed in any group are handled by the default sensor thread)
+    public List<OutputThreadConfig> outputThreads = new ArrayList<>();
+
+    // policies used by sensor outputs to skip records that did not change significantly
+    public List<PublishPolicyConfig> publishPolicies = new ArrayList<>();
+
+    // sensor outputs for which window statistics are also computed (regex matching output names)
+    public List<String> statsOutputNames = new ArrayList<>();
+    public double statsWindow = 1.0; // s
+
+    // triggers of full rate captures around events such as shocks
+    public List<CaptureTriggerConfig> captureTriggers = new ArrayList<>();
+
+    // use SWE binary encoding instead of text for sensor and location outputs
+    public boolean useBinaryEncoding = false;
+
+    // sensor outputs sending values as scaled integers, always with binary encoding
+    // (statistics and publish policy deadbands still use physical values)
+    public List<QuantizationConfig> quantizedOutputs = new ArrayList<>();
+
+    // number of samples packaged in each event by sensor outputs (1 = one event per sample)
+    public int sensorBatchSize = 1;
+    public int sensorBatchMaxDelay = 1000; // ms
+
+    // sensor outputs for which batches are also sent compressed (regex matching output names)
+    public List<String> packedOutputNames = new ArrayList<>();
+
+    // number of events (and their records) recycled by each sensor output (0 = no recycling)
+    // when enabled, location outputs also recycle their record if locationFlushInterval is 0
+    // when enabled, listeners must copy records they need to keep after handling an event
+    public int sensorRecordPoolSize = 0;
+
+    // number of past records kept by each sensor and location output (0 = none)
+    public int outputHistorySize = 0;
     
     public String deviceName;
     public String runName;
@@ -37,6 +37,9 @@ import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.api.sensor.ISensorDataInterface;
 import org.sensorhub.api.sensor.SensorException;
 import org.sensorhub.impl.sensor.AbstractSensorModule;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.CaptureTriggerConfig;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.OutputThreadConfig;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.QuantizationConfig;
 import org.sensorhub.impl.sensor.android.video.AndroidCameraOutputH264;
 import org.sensorhub.impl.sensor.android.video.AndroidCameraOutputH265;
 import org.sensorhub.impl.sensor.android.video.AndroidCameraOutputMJPEG;
@@ -49,6 +52,7 @@ import org.vast.ogc.gml.GenericFeatureImpl;
 import org.vast.sensorML.SMLStaxBindings;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.namespace.QName;
@@ -62,10 +66,15 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
 
     String localFrameURI;
     HandlerThread eventThread;
+    List<HandlerThread> outputThreads;
     SensorManager sensorManager;
     LocationManager locationManager;
     SensorMLBuilder smlBuilder;
     List<PhysicalComponent> smlComponents;
+    TimeBase timeBase = new TimeBase();
+    MotionDetector motionDetector; // shared by location outputs
+    List<AndroidLocationOutput> locationOutputs = new ArrayList<AndroidLocationOutput>();
+    List<ISensorDataInterface> internalOutputs = new ArrayList<ISensorDataInterface>(); // started but not published
 
 
     public AndroidSensorsDriver()
@@ -111,15 +120,104 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
                     break;
 
                 case Sensor.TYPE_ROTATION_VECTOR:
+                    // orientation outputs share a single listener
+                    RotationVectorListener rotationListener = new RotationVectorListener(sensorManager, sensor);
                     if (config.activateOrientationQuat)
-                        useSensor(new AndroidOrientationQuatOutput(this, sensorManager, sensor), sensor);
+                        useSensor(new AndroidOrientationQuatOutput(this, sensorManager, sensor, rotationListener), sensor);
                     if (config.activateOrientationEuler)
-                        useSensor(new AndroidOrientationEulerOutput(this, sensorManager, sensor), sensor);
+                        useSensor(new AndroidOrientationEulerOutput(this, sensorManager, sensor, rotationListener), sensor);
                     break;
             }
         }
 
+        // create time aligned IMU output if all 3 sensors are available
+        if (config.activateImu)
+        {
+            Sensor accelSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            Sensor gyroSensor = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+            Sensor magSensor = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
+            if (accelSensor != null && gyroSensor != null && magSensor != null)
+                useSensor(new AndroidImuOutput(this, sensorManager, accelSensor, gyroSensor, magSensor), accelSensor);
+            else
+                log.warn("Cannot create IMU output: accelerometer, gyroscope or magnetometer is missing");
+        }
+
+        // create AHRS output (magnetometer is optional)
+        if (config.activateAhrs)
+        {
+            Sensor gyroSensor = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+            Sensor accelSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            Sensor magSensor = sensorManager.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD);
+            if (gyroSensor != null && accelSensor != null)
+                useSensor(new AndroidAhrsOutput(this, sensorManager, gyroSensor, accelSensor, magSensor), gyroSensor);
+            else
+                log.warn("Cannot create AHRS output: gyroscope or accelerometer is missing");
+        }
+
+        // create vibration spectrum output
+        if (config.activateVibrationSpectrum)
+        {
+            Sensor accelSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+            if (accelSensor == null)
+                log.warn("Cannot create vibration spectrum output: accelerometer is missing");
+            else
+            {
+                try
+                {
+                    useSensor(new AndroidVibrationSpectrumOutput(this, sensorManager, accelSensor), accelSensor);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    log.warn("Cannot create vibration spectrum output: " + e.getMessage());
+                }
+            }
+        }
+
+        // create triggered capture outputs
+        int triggerIndex = 0;
+        for (CaptureTriggerConfig trigger: config.captureTriggers)
+        {
+            boolean isGyro = "GYRO".equals(trigger.sensor);
+            Sensor sensor = sensorManager.getDefaultSensor(isGyro ? Sensor.TYPE_GYROSCOPE : Sensor.TYPE_ACCELEROMETER);
+            String outputName = (isGyro ? "gyro" : "accel") + "_capture" + (triggerIndex++) + "_data";
+            if (sensor != null)
+                useSensor(new AndroidTriggeredCaptureOutput(this, sensorManager, sensor, trigger, outputName), sensor);
+            else
+                log.warn("Cannot create triggered capture output: " + trigger.sensor + " sensor is missing");
+        }
+
+        // create statistics outputs attached to sensor outputs
+        // before units of their source are scaled by quantization
+        createStatsOutputs();
+
+        // switch sensor outputs to fixed-point values
+        for (QuantizationConfig quantization: config.quantizedOutputs)
+        {
+            for (AndroidSensorOutput output: findSensorOutputs(Collections.singletonList(quantization.outputName)))
+            {
+                if (output.quantizer == null)
+                    output.setQuantization(quantization);
+            }
+        }
+
+        // create compressed batch outputs attached to sensor outputs
+        createPackedOutputs();
+
+        // motion detector used to slow down all location providers
+        motionDetector = null;
+        if (config.locationDutyCycling)
+        {
+            motionDetector = new MotionDetector(sensorManager, config.motionThreshold, config.stationaryDelay);
+            if (!motionDetector.isAvailable())
+            {
+                log.warn("Cannot slow down location updates: accelerometer is missing");
+                motionDetector = null;
+            }
+        }
+
         // create data interfaces for location providers
+        locationOutputs.clear();
+        internalOutputs.clear();
         if (androidContext.getPackageManager().hasSystemFeature(PackageManager.FEATURE_LOCATION))
         {
             this.locationManager = (LocationManager)androidContext.getSystemService(Context.LOCATION_SERVICE);
@@ -137,6 +235,18 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
             }
         }
 
+        // create location output combining all providers
+        if (config.activateFusedLocation)
+            createFusedLocationOutput();
+
+        // create location output interpolated between fixes
+        if (config.activateDeadReckoning)
+            createDeadReckoningOutput();
+
+        // create geofence output
+        if (!config.geofences.isEmpty())
+            createGeofenceOutput();
+
         // create data interfaces for cameras
         if (androidContext.getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_ANY))
             createCameraOutputs(androidContext);
@@ -147,13 +257,207 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
     @Override
     public void start() throws SensorException
     {
+        // estimate clock offset before first samples are time stamped
+        timeBase.update();
+
         // start event handling thread
         eventThread = new HandlerThread("SensorThread " + getName());
         eventThread.start();
         Handler eventHandler = new Handler(eventThread.getLooper());
 
+        // start additional threads dedicated to some outputs
+        outputThreads = new ArrayList<HandlerThread>();
+        List<Handler> outputHandlers = new ArrayList<Handler>();
+        for (OutputThreadConfig threadConfig: config.outputThreads)
+        {
+            HandlerThread thread = new HandlerThread(threadConfig.name + " " + getName(), threadConfig.priority);
+            thread.start();
+            outputThreads.add(thread);
+            outputHandlers.add(new Handler(thread.getLooper()));
+        }
+
+        for (ISensorDataInterface o: getAllOutputs().values())
+        {
+            Handler handler = getOutputHandler(o.getName(), outputHandlers, eventHandler);
+            if (handler != eventHandler && isFedByOtherOutput(o))
+                log.warn("Output " + o.getName() + " is computed in the thread of its source output, ignoring thread group");
+            ((IAndroidOutput)o).start(handler);
+        }
+
+        for (ISensorDataInterface o: internalOutputs)
+            ((IAndroidOutput)o).start(getOutputHandler(o.getName(), outputHandlers, eventHandler));
+
+        if (motionDetector != null)
+            motionDetector.start(eventHandler);
+    }
+
+
+    /*
+     * These outputs receive data from other outputs so they have no thread of their own
+     */
+    protected boolean isFedByOtherOutput(ISensorDataInterface output)
+    {
+        return output instanceof AndroidSensorStatsOutput ||
+               output instanceof AndroidPackedBatchOutput ||
+               output instanceof AndroidFusedLocationOutput ||
+               output instanceof AndroidGeofenceOutput;
+    }
+
+
+    protected Handler getOutputHandler(String outputName, List<Handler> outputHandlers, Handler defaultHandler)
+    {
+        // use the first thread group that lists this output
+        for (int i = 0; i < config.outputThreads.size(); i++)
+        {
+            for (String regex: config.outputThreads.get(i).outputNames)
+            {
+                if (outputName.matches(regex))
+                    return outputHandlers.get(i);
+            }
+        }
+
+        return defaultHandler;
+    }
+
+
+    protected List<AndroidSensorOutput> findSensorOutputs(List<String> outputNames)
+    {
+        List<AndroidSensorOutput> sources = new ArrayList<AndroidSensorOutput>();
         for (ISensorDataInterface o: getAllOutputs().values())
-            ((IAndroidOutput)o).start(eventHandler);
+        {
+            if (!(o instanceof AndroidSensorOutput))
+                continue;
+
+            for (String regex: outputNames)
+            {
+                if (o.getName().matches(regex))
+                {
+                    sources.add((AndroidSensorOutput)o);
+                    break;
+                }
+            }
+        }
+
+        return sources;
+    }
+
+
+    protected void createStatsOutputs()
+    {
+        for (AndroidSensorOutput source: findSensorOutputs(config.statsOutputNames))
+        {
+            AndroidSensorStatsOutput statsOutput;
+            try
+            {
+                statsOutput = new AndroidSensorStatsOutput(this, source);
+            }
+            catch (IllegalArgumentException e)
+            {
+                log.warn("Cannot compute statistics of " + source.getName() + " output: " + e.getMessage());
+                continue;
+            }
+            
+            source.statsOutput = statsOutput;
+            addOutput(statsOutput, false);
+            log.info("Computing statistics of " + source.getName() + " output");
+        }
+    }
+
+
+    protected void createPackedOutputs()
+    {
+        if (config.sensorBatchSize <= 1 && !config.packedOutputNames.isEmpty())
+        {
+            log.warn("Compressed batch outputs require sensorBatchSize > 1");
+            return;
+        }
+
+        for (AndroidSensorOutput source: findSensorOutputs(config.packedOutputNames))
+        {
+            AndroidPackedBatchOutput packedOutput;
+            try
+            {
+                packedOutput = new AndroidPackedBatchOutput(this, source);
+            }
+            catch (IllegalArgumentException e)
+            {
+                log.warn("Cannot send compressed batches of " + source.getName() + " output: " + e.getMessage());
+                continue;
+            }
+            
+            source.packedOutput = packedOutput;
+            addOutput(packedOutput, false);
+            log.info("Sending compressed batches of " + source.getName() + " output");
+        }
+    }
+
+
+    protected void createFusedLocationOutput()
+    {
+        List<AndroidLocationOutput> sources = new ArrayList<AndroidLocationOutput>(locationOutputs);
+        if (!sources.isEmpty())
+        {
+            addOutput(new AndroidFusedLocationOutput(this, sources), false);
+            log.info("Fusing fixes from " + sources.size() + " location provider(s)");
+        }
+        else
+            log.warn("Cannot create fused location output: no location provider is active");
+    }
+
+
+    /*
+     * Gets the GPS location output if available, or any other location output
+     */
+    protected AndroidLocationOutput getPrimaryLocationOutput()
+    {
+        AndroidLocationOutput locationSource = null;
+        for (AndroidLocationOutput locOutput: locationOutputs)
+        {
+            if (locationSource == null || locOutput.locProvider.requiresSatellite())
+                locationSource = locOutput;
+        }
+
+        return locationSource;
+    }
+
+
+    protected void createGeofenceOutput()
+    {
+        AndroidLocationOutput locationSource = getPrimaryLocationOutput();
+        if (locationSource != null)
+        {
+            AndroidGeofenceOutput geofenceOutput;
+            try
+            {
+                geofenceOutput = new AndroidGeofenceOutput(this, locationSource);
+            }
+            catch (IllegalArgumentException e)
+            {
+                log.warn("Cannot create geofence output: " + e.getMessage());
+                return;
+            }
+
+            addOutput(geofenceOutput, false);
+            log.info("Checking " + geofenceOutput.index.size() + " geofence(s) against " + locationSource.getName() + " output");
+        }
+        else
+            log.warn("Cannot create geofence output: no location provider is active");
+    }
+
+
+    protected void createDeadReckoningOutput()
+    {
+        // propagate fixes from GPS if available
+        AndroidLocationOutput locationSource = getPrimaryLocationOutput();
+        Sensor linAccelSensor = sensorManager.getDefaultSensor(Sensor.TYPE_LINEAR_ACCELERATION);
+        Sensor rotationSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+        if (locationSource != null && linAccelSensor != null && rotationSensor != null)
+        {
+            useSensor(new AndroidDeadReckoningOutput(this, sensorManager, linAccelSensor, rotationSensor, locationSource), linAccelSensor);
+            log.info("Interpolating " + locationSource.getName() + " output");
+        }
+        else
+            log.warn("Cannot create interpolated location output: location provider, linear acceleration or rotation vector sensor is missing");
     }
 
 
@@ -233,7 +537,17 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
 
     protected void useLocationProvider(ISensorDataInterface output, LocationProvider locProvider)
     {
-        addOutput(output, false);
+        if (output instanceof AndroidLocationOutput)
+            locationOutputs.add((AndroidLocationOutput)output);
+
+        // when fusing, provider outputs only feed the fused output
+        if (config.activateFusedLocation && output instanceof AndroidLocationOutput)
+        {
+            ((AndroidLocationOutput)output).feederOnly = true;
+            internalOutputs.add(output);
+        }
+        else
+            addOutput(output, false);
         smlComponents.add(smlBuilder.getComponentDescription(locationManager, locProvider));
         log.info("Getting data from " + locProvider.getName() + " location provider");
     }
@@ -258,18 +572,32 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
     @Override
     public void stop() throws SensorException
     {
+        if (motionDetector != null)
+            motionDetector.stop();
+
         // stop all outputs
+        for (ISensorDataInterface o: internalOutputs)
+            ((IAndroidOutput)o).stop();
         for (ISensorDataInterface o: this.getAllOutputs().values())
             ((IAndroidOutput)o).stop();
 
-        // stop event handling thread
+        // stop event handling threads
         if (eventThread != null)
         {
             eventThread.quitSafely();
             eventThread = null;
         }
 
+        if (outputThreads != null)
+        {
+            for (HandlerThread thread: outputThreads)
+                thread.quitSafely();
+            outputThreads = null;
+        }
+
         this.removeAllOutputs();
+        internalOutputs.clear();
+        locationOutputs.clear();
         this.removeAllControlInputs();
     }
 
@@ -342,6 +670,18 @@ public class AndroidSensorsDriver extends AbstractSensorModule<AndroidSensorsCon
     }
 
 
+    MotionDetector getMotionDetector()
+    {
+        return motionDetector;
+    }
+
+
+    public TimeBase getTimeBase()
+    {
+        return timeBase;
+    }
+
+
     @Override
     public Logger getLogger()
     {
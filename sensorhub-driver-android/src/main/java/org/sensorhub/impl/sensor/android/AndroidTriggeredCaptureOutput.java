@@ -0,0 +1,185 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataRecord;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.CaptureTriggerConfig;
+import org.vast.swe.helper.GeoPosHelper;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorManager;
+
+
+/**
+ * <p>
+ * Implementation of data interface capturing bursts of full rate samples
+ * from an accelerometer or gyrometer around trigger events (e.g. shocks).
+ * Samples are continuously written to a preallocated ring buffer and a
+ * burst record including both pre and post trigger samples is published
+ * each time the vector magnitude deviates from the configured offset by
+ * more than the threshold.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidTriggeredCaptureOutput extends AndroidSensorOutput
+{
+    private static final int DEFAULT_RATE_US = 10000;
+    
+    CaptureTriggerConfig trigger;
+    int preTriggerCount;
+    int postTriggerCount;
+    int numSamples;
+    
+    // ring buffer of last samples
+    long[] times;
+    float[] values;
+    int pos;
+    int count;
+    
+    // current burst state
+    int remainingPostSamples = -1;
+    long triggerTime;
+    double triggerValue;
+    
+    
+    protected AndroidTriggeredCaptureOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor, CaptureTriggerConfig trigger, String name)
+    {
+        super(parentModule, aSensorManager, aSensor);
+        this.trigger = trigger;
+        this.name = name;
+        
+        // size buffers based on nominal sampling rate
+        int rateUs = aSensor.getMinDelay() > 0 ? aSensor.getMinDelay() : DEFAULT_RATE_US;
+        if (trigger.samplingRate > 0)
+            rateUs = Math.max(rateUs, (int)(1e6 / trigger.samplingRate));
+        this.preTriggerCount = Math.max(1, (int)Math.round(trigger.preTriggerDuration * 1e6 / rateUs));
+        this.postTriggerCount = Math.max(1, (int)Math.round(trigger.postTriggerDuration * 1e6 / rateUs));
+        this.numSamples = preTriggerCount + postTriggerCount;
+        this.times = new long[numSamples];
+        this.values = new float[numSamples * 3];
+        
+        // create output structure
+        boolean isGyro = (aSensor.getType() == Sensor.TYPE_GYROSCOPE);
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = fac.newDataRecord(3);
+        dataStruct.setName(getName());
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("triggerValue", fac.createQuantity()
+            .label("Trigger Value")
+            .description("Deviation of vector magnitude from offset that triggered the capture")
+            .uomCode(isGyro ? "rad/s" : "m/s2")
+            .build());
+        
+        DataRecord sample = fac.newDataRecord(2);
+        sample.addComponent("time", fac.newTimeStampIsoUTC());
+        if (isGyro)
+            sample.addComponent("omega", fac.newAngularVelocityVector(null, parentSensor.localFrameURI, "rad/s"));
+        else
+            sample.addComponent("accel", fac.newAccelerationVector(null, parentSensor.localFrameURI, "m/s2"));
+        DataArray samples = fac.newDataArray(numSamples);
+        samples.setElementType("sample", sample);
+        dataStruct.addComponent("samples", samples);
+    }
+    
+    
+    @Override
+    protected double getConfiguredSamplingRate(AndroidSensorsConfig config)
+    {
+        return trigger.samplingRate;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return trigger.preTriggerDuration + trigger.postTriggerDuration;
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        // add sample to ring buffer
+        pos = (pos + 1) % numSamples;
+        times[pos] = e.timestamp;
+        System.arraycopy(e.values, 0, values, pos * 3, 3);
+        if (count < numSamples)
+            count++;
+        
+        // complete current burst
+        if (remainingPostSamples > 0)
+        {
+            if (--remainingPostSamples == 0)
+            {
+                publishBurst();
+                remainingPostSamples = -1;
+            }
+            return;
+        }
+        
+        // only arm trigger once pre-trigger buffer is full
+        // so that bursts always contain the same number of samples
+        if (count <= preTriggerCount)
+            return;
+        
+        float x = e.values[0], y = e.values[1], z = e.values[2];
+        double deviation = Math.abs(Math.sqrt(x*x + y*y + z*z) - trigger.offset);
+        if (deviation > trigger.threshold)
+        {
+            triggerTime = e.timestamp;
+            triggerValue = deviation;
+            
+            // trigger sample is the first post-trigger sample
+            remainingPostSamples = postTriggerCount - 1;
+            if (remainingPostSamples == 0)
+            {
+                publishBurst();
+                remainingPostSamples = -1;
+            }
+        }
+    }
+    
+    
+    protected void publishBurst()
+    {
+        // build and populate datablock
+        DataBlock dataBlock = nextRecord();
+        int idx = 0;
+        dataBlock.setDoubleValue(idx++, getJulianTimeStamp(triggerTime));
+        dataBlock.setDoubleValue(idx++, triggerValue);
+        
+        // copy samples from oldest to newest
+        for (int i = 0; i < numSamples; i++)
+        {
+            int j = (pos + 1 + i) % numSamples;
+            dataBlock.setDoubleValue(idx++, getJulianTimeStamp(times[j]));
+            dataBlock.setFloatValue(idx++, values[j*3]);
+            dataBlock.setFloatValue(idx++, values[j*3+1]);
+            dataBlock.setFloatValue(idx++, values[j*3+2]);
+        }
+        
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
+    }
+}
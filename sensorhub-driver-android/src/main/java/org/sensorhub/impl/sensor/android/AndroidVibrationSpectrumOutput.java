@@ -0,0 +1,306 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataRecord;
+import org.vast.swe.helper.GeoPosHelper;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorManager;
+
+
+/**
+ * <p>
+ * Implementation of data interface providing the vibration spectrum of the
+ * device, computed by FFT over overlapping windows of accelerometer samples.
+ * The spectrum of the acceleration magnitude (without its mean) is published
+ * either as energy in equal width frequency bands or as the N highest peaks.
+ * All buffers are allocated when the output is created.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class AndroidVibrationSpectrumOutput extends AndroidSensorOutput
+{
+    public static final String MODE_BANDS = "BANDS";
+    public static final String MODE_PEAKS = "PEAKS";
+    static final int MIN_WINDOW_SIZE = 16;
+    
+    boolean peakMode;
+    int windowSize;
+    int hopSize;
+    int numBins; // number of bands or peaks
+    Fft fft;
+    double[] window;
+    double windowSum;
+    double windowSumSq;
+    
+    // circular buffer of input samples
+    double[] samples;
+    long[] sampleTimes;
+    int samplePos;
+    int sampleCount;
+    int hopCount;
+    
+    // work buffers
+    double[] re;
+    double[] im;
+    double[] peakFreqs;
+    double[] peakAmps;
+    
+    
+    protected AndroidVibrationSpectrumOutput(AndroidSensorsDriver parentModule, SensorManager aSensorManager, Sensor aSensor)
+    {
+        super(parentModule, aSensorManager, aSensor);
+        this.name = "vibration_spectrum_data";
+        
+        AndroidSensorsConfig config = parentModule.getConfiguration();
+        checkConfig(config);
+        this.peakMode = MODE_PEAKS.equals(config.spectrumMode);
+        this.windowSize = config.spectrumWindowSize;
+        this.hopSize = Math.max(1, (int)Math.round(windowSize * (1.0 - config.spectrumOverlap)));
+        this.numBins = peakMode ? config.spectrumNumPeaks : config.spectrumNumBands;
+        
+        // preallocate everything
+        this.fft = new Fft(windowSize);
+        this.window = new double[windowSize];
+        for (int i = 0; i < windowSize; i++)
+        {
+            window[i] = 0.5 - 0.5 * Math.cos(2*Math.PI*i / (windowSize - 1)); // hann
+            windowSum += window[i];
+            windowSumSq += window[i] * window[i];
+        }
+        this.samples = new double[windowSize];
+        this.sampleTimes = new long[windowSize];
+        this.re = new double[windowSize];
+        this.im = new double[windowSize];
+        this.peakFreqs = new double[numBins];
+        this.peakAmps = new double[numBins];
+        
+        // create output structure
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = fac.newDataRecord(3);
+        dataStruct.setName(getName());
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("samplingRate", fac.createQuantity()
+            .definition("http://sensorml.com/ont/swe/property/SamplingRate")
+            .label("Sampling Rate")
+            .description("Measured accelerometer sampling rate, used to compute frequencies")
+            .uomCode("Hz")
+            .build());
+        
+        DataArray array = fac.newDataArray(numBins);
+        if (peakMode)
+        {
+            DataRecord peak = fac.newDataRecord(2);
+            peak.addComponent("freq", fac.createQuantity()
+                .definition("http://sensorml.com/ont/swe/property/Frequency")
+                .label("Frequency")
+                .uomCode("Hz")
+                .build());
+            peak.addComponent("amplitude", fac.createQuantity()
+                .definition("http://sensorml.com/ont/swe/property/Acceleration")
+                .label("Amplitude")
+                .uomCode("m/s2")
+                .build());
+            array.setElementType("peak", peak);
+            dataStruct.addComponent("peaks", array);
+        }
+        else
+        {
+            array.setElementType("energy", fac.createQuantity()
+                .definition("http://sensorml.com/ont/swe/property/AccelerationPower")
+                .label("Band Energy")
+                .description("Mean square acceleration in frequency band (bands split 0 to samplingRate/2 evenly)")
+                .uomCode("m2/s4")
+                .build());
+            dataStruct.addComponent("bands", array);
+        }
+    }
+    
+    
+    /*
+     * Checks spectrum settings, since the FFT only supports power of 2 sizes
+     * and at least one band or peak is needed
+     */
+    private static void checkConfig(AndroidSensorsConfig config)
+    {
+        int windowSize = config.spectrumWindowSize;
+        if (windowSize < MIN_WINDOW_SIZE || (windowSize & (windowSize - 1)) != 0)
+            throw new IllegalArgumentException("Window size must be a power of 2 >= " + MIN_WINDOW_SIZE + ": " + windowSize);
+        
+        if (!(config.spectrumOverlap >= 0.0 && config.spectrumOverlap < 1.0))
+            throw new IllegalArgumentException("Overlap must be in [0,1[: " + config.spectrumOverlap);
+        
+        if (!MODE_PEAKS.equals(config.spectrumMode) && !MODE_BANDS.equals(config.spectrumMode))
+            throw new IllegalArgumentException("Unsupported mode: " + config.spectrumMode);
+        
+        int numBins = MODE_PEAKS.equals(config.spectrumMode) ? config.spectrumNumPeaks : config.spectrumNumBands;
+        if (numBins < 1 || numBins > windowSize / 2)
+            throw new IllegalArgumentException("Number of bands or peaks must be in [1," + windowSize/2 + "]: " + numBins);
+    }
+    
+    
+    @Override
+    protected double getConfiguredSamplingRate(AndroidSensorsConfig config)
+    {
+        return config.spectrumSamplingRate;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return samplingPeriod * hopSize;
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        float ax = e.values[0];
+        float ay = e.values[1];
+        float az = e.values[2];
+        
+        samplePos = (samplePos + 1) % windowSize;
+        samples[samplePos] = Math.sqrt(ax*ax + ay*ay + az*az);
+        sampleTimes[samplePos] = e.timestamp;
+        if (sampleCount < windowSize)
+            sampleCount++;
+        
+        // compute spectrum after each hop, once window is full
+        if (++hopCount < hopSize || sampleCount < windowSize)
+            return;
+        hopCount = 0;
+        
+        // measure actual sampling rate over the window
+        int oldestPos = (samplePos + 1) % windowSize;
+        long firstTime = sampleTimes[oldestPos];
+        long lastTime = sampleTimes[samplePos];
+        if (lastTime <= firstTime)
+            return;
+        double samplingRate = (windowSize - 1) * 1e9 / (lastTime - firstTime);
+        
+        // copy window in time order, remove mean and apply window function
+        double mean = 0.0;
+        for (int i = 0; i < windowSize; i++)
+            mean += samples[i];
+        mean /= windowSize;
+        for (int i = 0, j = oldestPos; i < windowSize; i++, j = (j + 1) % windowSize)
+        {
+            re[i] = (samples[j] - mean) * window[i];
+            im[i] = 0.0;
+        }
+        
+        fft.transform(re, im);
+        
+        // build and populate datablock
+        // time stamp is at center of window
+        DataBlock dataBlock = nextRecord();
+        dataBlock.setDoubleValue(0, getJulianTimeStamp((firstTime + lastTime) / 2));
+        dataBlock.setDoubleValue(1, samplingRate);
+        if (peakMode)
+            computePeaks(samplingRate, dataBlock, 2);
+        else
+            computeBands(dataBlock, 2);
+        
+        // update latest record and send event (or add to current batch)
+        publishRecord(dataBlock);
+    }
+    
+    
+    /*
+     * Power of bin k, scaled so that the sum over all positive frequency
+     * bins is the mean square of the signal
+     */
+    private double getPower(int k)
+    {
+        double p = (re[k]*re[k] + im[k]*im[k]) / (windowSize * windowSumSq);
+        return (k == 0 || k == windowSize/2) ? p : 2*p;
+    }
+    
+    
+    /*
+     * Amplitude of a sine wave with peak in bin k
+     */
+    private double getAmplitude(int k)
+    {
+        return 2 * Math.sqrt(re[k]*re[k] + im[k]*im[k]) / windowSum;
+    }
+    
+    
+    private void computeBands(DataBlock dataBlock, int offset)
+    {
+        int numFreqBins = windowSize / 2;
+        for (int b = 0; b < numBins; b++)
+        {
+            int startBin = b * numFreqBins / numBins;
+            int endBin = (b + 1) * numFreqBins / numBins;
+            double energy = 0.0;
+            for (int k = startBin; k < endBin; k++)
+                energy += getPower(k);
+            dataBlock.setDoubleValue(offset + b, energy);
+        }
+    }
+    
+    
+    private void computePeaks(double samplingRate, DataBlock dataBlock, int offset)
+    {
+        int numPeaks = 0;
+        double binWidth = samplingRate / windowSize;
+        
+        // keep N highest local maxima, sorted by decreasing amplitude
+        for (int k = 1; k < windowSize/2; k++)
+        {
+            double amp = getAmplitude(k);
+            double prev = getAmplitude(k-1);
+            double next = getAmplitude(k+1);
+            if (amp <= prev || amp < next)
+                continue;
+            if (numPeaks == numBins && amp <= peakAmps[numPeaks-1])
+                continue;
+            
+            // refine peak frequency with parabolic interpolation
+            double denom = prev - 2*amp + next;
+            double delta = (denom != 0.0) ? 0.5 * (prev - next) / denom : 0.0;
+            
+            int i = (numPeaks < numBins) ? numPeaks++ : numPeaks-1;
+            while (i > 0 && peakAmps[i-1] < amp)
+            {
+                peakAmps[i] = peakAmps[i-1];
+                peakFreqs[i] = peakFreqs[i-1];
+                i--;
+            }
+            peakAmps[i] = amp;
+            peakFreqs[i] = (k + delta) * binWidth;
+        }
+        
+        // fill unused peaks with zeros
+        for (int i = 0; i < numBins; i++)
+        {
+            boolean used = (i < numPeaks);
+            dataBlock.setDoubleValue(offset + 2*i, used ? peakFreqs[i] : 0.0);
+            dataBlock.setDoubleValue(offset + 2*i + 1, used ? peakAmps[i] : 0.0);
+        }
+    }
+}
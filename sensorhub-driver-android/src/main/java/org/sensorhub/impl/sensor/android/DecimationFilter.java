@@ -0,0 +1,161 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+
+/**
+ * <p>
+ * Multichannel decimator with a low-pass FIR anti-aliasing filter
+ * (Hamming windowed sinc). The filter is only evaluated once for every
+ * output sample, and all buffers are allocated up front so that pushing
+ * samples never allocates.<br/>
+ * The time stamp of each output sample is the time stamp of the input
+ * sample at the center of the filter, to compensate for its group delay.<br/>
+ * The number of taps is capped, so large decimation factors (typically
+ * 20 to 50 when going from the sensor max rate down to a few Hz) are
+ * split into a cascade of stages that each keep enough taps per factor.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class DecimationFilter
+{
+    static final int TAPS_PER_FACTOR = 8;
+    static final int MAX_TAPS = 255;
+    static final int MAX_STAGE_FACTOR = MAX_TAPS / TAPS_PER_FACTOR;
+    static final double CUTOFF_RATIO = 0.8; // fraction of output Nyquist frequency
+    
+    final int factor;
+    final int numChannels;
+    final int numTaps;
+    final double[] taps;
+    final float[] inputs;
+    final long[] inputTimes;
+    final float[] stageOutput;
+    final DecimationFilter nextStage;
+    final float[] output; // output of last stage
+    long outputTime;
+    int pos;
+    int count;
+    int phase;
+    
+    
+    /*
+     * Creates a filter decimating by approximately the given factor.
+     * The actual factor can differ slightly if stages must be cascaded,
+     * so callers should read it back with getTotalFactor()
+     */
+    DecimationFilter(int factor, int numChannels)
+    {
+        // split large factors, first stage gets the smallest factor
+        int stageFactor = factor;
+        int remainingFactor = 1;
+        if (factor > MAX_STAGE_FACTOR)
+        {
+            stageFactor = (factor + MAX_STAGE_FACTOR - 1) / MAX_STAGE_FACTOR;
+            remainingFactor = Math.round((float)factor / stageFactor);
+        }
+        
+        this.factor = stageFactor;
+        this.numChannels = numChannels;
+        this.numTaps = Math.min(MAX_TAPS, TAPS_PER_FACTOR * stageFactor) | 1; // always odd
+        this.taps = designLowPass(numTaps, CUTOFF_RATIO * 0.5 / stageFactor);
+        this.inputs = new float[numTaps * numChannels];
+        this.inputTimes = new long[numTaps];
+        this.stageOutput = new float[numChannels];
+        this.nextStage = (remainingFactor > 1) ? new DecimationFilter(remainingFactor, numChannels) : null;
+        this.output = (nextStage != null) ? nextStage.output : stageOutput;
+    }
+    
+    
+    int getTotalFactor()
+    {
+        return (nextStage != null) ? factor * nextStage.getTotalFactor() : factor;
+    }
+    
+    
+    /*
+     * Computes windowed sinc coefficients with unity DC gain,
+     * for a cutoff frequency given as a fraction of the input sampling rate
+     */
+    static double[] designLowPass(int numTaps, double cutoff)
+    {
+        double[] h = new double[numTaps];
+        double center = (numTaps - 1) / 2.0;
+        double sum = 0.0;
+        
+        for (int n = 0; n < numTaps; n++)
+        {
+            double x = n - center;
+            double sinc = (x == 0.0) ? 2*cutoff : Math.sin(2*Math.PI*cutoff*x) / (Math.PI*x);
+            double window = 0.54 - 0.46 * Math.cos(2*Math.PI*n / (numTaps - 1));
+            h[n] = sinc * window;
+            sum += h[n];
+        }
+        
+        for (int n = 0; n < numTaps; n++)
+            h[n] /= sum;
+        
+        return h;
+    }
+    
+    
+    /*
+     * Adds a new input sample.
+     * Returns true if a new output sample is available
+     */
+    boolean push(long timeStamp, float[] values)
+    {
+        pos = (pos + 1) % numTaps;
+        System.arraycopy(values, 0, inputs, pos * numChannels, numChannels);
+        inputTimes[pos] = timeStamp;
+        if (count < numTaps)
+            count++;
+        
+        if (++phase < factor)
+            return false;
+        phase = 0;
+        
+        // wait until filter is primed
+        if (count < numTaps)
+            return false;
+        
+        // convolve, starting with newest sample
+        for (int c = 0; c < numChannels; c++)
+        {
+            double acc = 0.0;
+            int idx = pos;
+            for (int k = 0; k < numTaps; k++)
+            {
+                acc += taps[k] * inputs[idx * numChannels + c];
+                if (--idx < 0)
+                    idx = numTaps - 1;
+            }
+            stageOutput[c] = (float)acc;
+        }
+        
+        outputTime = inputTimes[(pos - numTaps/2 + numTaps) % numTaps];
+        
+        // feed next stage if cascaded
+        if (nextStage != null)
+        {
+            if (!nextStage.push(outputTime, stageOutput))
+                return false;
+            outputTime = nextStage.outputTime;
+        }
+        
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+
+/**
+ * <p>
+ * In-place iterative radix-2 FFT of fixed size. Twiddle factors and the
+ * bit reversal permutation are computed once in the constructor so that
+ * transforms don't allocate anything.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class Fft
+{
+    final int size;
+    final double[] cos;
+    final double[] sin;
+    final int[] bitReversed;
+    
+    
+    Fft(int size)
+    {
+        if (size < 2 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("FFT size must be a power of 2");
+        
+        this.size = size;
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++)
+        {
+            double a = -2 * Math.PI * i / size;
+            cos[i] = Math.cos(a);
+            sin[i] = Math.sin(a);
+        }
+        
+        int numBits = Integer.numberOfTrailingZeros(size);
+        this.bitReversed = new int[size];
+        for (int i = 0; i < size; i++)
+            bitReversed[i] = Integer.reverse(i) >>> (32 - numBits);
+    }
+    
+    
+    /*
+     * Computes forward transform of complex signal in place
+     */
+    void transform(double[] re, double[] im)
+    {
+        // reorder input in bit reversed order
+        for (int i = 0; i < size; i++)
+        {
+            int j = bitReversed[i];
+            if (j > i)
+            {
+                double tmp = re[i];
+                re[i] = re[j];
+                re[j] = tmp;
+                tmp = im[i];
+                im[i] = im[j];
+                im[j] = tmp;
+            }
+        }
+        
+        // butterflies
+        for (int len = 2; len <= size; len <<= 1)
+        {
+            int half = len >> 1;
+            int step = size / len;
+            for (int i = 0; i < size; i += len)
+            {
+                for (int j = 0, k = 0; j < half; j++, k += step)
+                {
+                    int a = i + j;
+                    int b = a + half;
+                    double tre = re[b] * cos[k] - im[b] * sin[k];
+                    double tim = re[b] * sin[k] + im[b] * cos[k];
+                    re[b] = re[a] - tre;
+                    im[b] = im[a] - tim;
+                    re[a] += tre;
+                    im[a] += tim;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+
+/**
+ * <p>
+ * Uniform grid index of geofence polygons. Each polygon is registered in all
+ * grid cells overlapped by its bounding box, so a point only needs to be
+ * tested against the polygons of its cell.<br/>
+ * To bound memory usage, a polygon is never registered in more than
+ * MAX_CELLS_PER_POLYGON cells. Polygons too large for the fine grid are
+ * registered in a coarser grid, and the few polygons too large even for
+ * the coarse grid are kept in a list that is tested for every point.<br/>
+ * Coordinates are latitude/longitude in degrees and polygons must not cross
+ * the antimeridian.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class GeofenceIndex
+{
+    static final int MAX_CELLS_PER_POLYGON = 256;
+    static final int COARSE_FACTOR = 32;
+    
+    final double cellSize;
+    final double coarseCellSize;
+    final List<double[]> polygons = new ArrayList<double[]>(); // lat1, lon1, lat2, lon2...
+    final List<double[]> bboxes = new ArrayList<double[]>(); // minLat, minLon, maxLat, maxLon
+    Map<Long, int[]> cells;
+    Map<Long, int[]> coarseCells;
+    int[] largePolygons;
+    
+    
+    GeofenceIndex(double cellSize)
+    {
+        this.cellSize = cellSize;
+        this.coarseCellSize = cellSize * COARSE_FACTOR;
+    }
+    
+    
+    /*
+     * Adds a polygon and returns its index
+     */
+    int add(double[] vertices)
+    {
+        double[] bbox = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < vertices.length; i += 2)
+        {
+            bbox[0] = Math.min(bbox[0], vertices[i]);
+            bbox[1] = Math.min(bbox[1], vertices[i+1]);
+            bbox[2] = Math.max(bbox[2], vertices[i]);
+            bbox[3] = Math.max(bbox[3], vertices[i+1]);
+        }
+        
+        polygons.add(vertices);
+        bboxes.add(bbox);
+        cells = null;
+        return polygons.size() - 1;
+    }
+    
+    
+    /*
+     * Builds grids from all polygons added so far
+     */
+    void build()
+    {
+        Map<Long, List<Integer>> cellLists = new HashMap<Long, List<Integer>>();
+        Map<Long, List<Integer>> coarseCellLists = new HashMap<Long, List<Integer>>();
+        List<Integer> largeList = new ArrayList<Integer>();
+        
+        for (int p = 0; p < polygons.size(); p++)
+        {
+            double[] bbox = bboxes.get(p);
+            if (getCellCount(bbox, cellSize) <= MAX_CELLS_PER_POLYGON)
+                addToCells(cellLists, p, bbox, cellSize);
+            else if (getCellCount(bbox, coarseCellSize) <= MAX_CELLS_PER_POLYGON)
+                addToCells(coarseCellLists, p, bbox, coarseCellSize);
+            else
+                largeList.add(p);
+        }
+        
+        // store as arrays for faster queries
+        cells = toArrays(cellLists);
+        coarseCells = toArrays(coarseCellLists);
+        largePolygons = toArray(largeList);
+    }
+    
+    
+    private long getCellCount(double[] bbox, double size)
+    {
+        long numRows = getCellIndex(bbox[2], size) - getCellIndex(bbox[0], size) + 1L;
+        long numCols = getCellIndex(bbox[3], size) - getCellIndex(bbox[1], size) + 1L;
+        return numRows * numCols;
+    }
+    
+    
+    private void addToCells(Map<Long, List<Integer>> cellLists, int p, double[] bbox, double size)
+    {
+        int minRow = getCellIndex(bbox[0], size), maxRow = getCellIndex(bbox[2], size);
+        int minCol = getCellIndex(bbox[1], size), maxCol = getCellIndex(bbox[3], size);
+        
+        for (int row = minRow; row <= maxRow; row++)
+        {
+            for (int col = minCol; col <= maxCol; col++)
+            {
+                Long key = getCellKey(row, col);
+                List<Integer> list = cellLists.get(key);
+                if (list == null)
+                    cellLists.put(key, list = new ArrayList<Integer>());
+                list.add(p);
+            }
+        }
+    }
+    
+    
+    private static Map<Long, int[]> toArrays(Map<Long, List<Integer>> cellLists)
+    {
+        Map<Long, int[]> cellArrays = new HashMap<Long, int[]>();
+        for (Entry<Long, List<Integer>> entry: cellLists.entrySet())
+            cellArrays.put(entry.getKey(), toArray(entry.getValue()));
+        return cellArrays;
+    }
+    
+    
+    private static int[] toArray(List<Integer> list)
+    {
+        int[] indexes = new int[list.size()];
+        for (int i = 0; i < indexes.length; i++)
+            indexes[i] = list.get(i);
+        return indexes;
+    }
+    
+    
+    /*
+     * Sets the bits of all polygons containing the point in the given set
+     */
+    void findContaining(double lat, double lon, BitSet result)
+    {
+        if (cells == null)
+            build();
+        
+        // polygons not in candidates cannot contain the point
+        testCandidates(cells.get(getCellKey(getCellIndex(lat, cellSize), getCellIndex(lon, cellSize))), lat, lon, result);
+        testCandidates(coarseCells.get(getCellKey(getCellIndex(lat, coarseCellSize), getCellIndex(lon, coarseCellSize))), lat, lon, result);
+        testCandidates(largePolygons, lat, lon, result);
+    }
+    
+    
+    private void testCandidates(int[] candidates, double lat, double lon, BitSet result)
+    {
+        if (candidates == null)
+            return;
+        
+        for (int p: candidates)
+        {
+            if (contains(p, lat, lon))
+                result.set(p);
+        }
+    }
+    
+    
+    /*
+     * Tests if the point is inside the polygon, using ray casting
+     */
+    boolean contains(int polygonIndex, double lat, double lon)
+    {
+        double[] bbox = bboxes.get(polygonIndex);
+        if (lat < bbox[0] || lon < bbox[1] || lat > bbox[2] || lon > bbox[3])
+            return false;
+        
+        double[] v = polygons.get(polygonIndex);
+        boolean inside = false;
+        for (int i = 0, j = v.length - 2; i < v.length; j = i, i += 2)
+        {
+            double lati = v[i], loni = v[i+1];
+            double latj = v[j], lonj = v[j+1];
+            if ((lati > lat) != (latj > lat) &&
+                lon < (lonj - loni) * (lat - lati) / (latj - lati) + loni)
+                inside = !inside;
+        }
+        
+        return inside;
+    }
+    
+    
+    int size()
+    {
+        return polygons.size();
+    }
+    
+    
+    private static int getCellIndex(double coord, double size)
+    {
+        return (int)Math.floor(coord / size);
+    }
+    
+    
+    private static long getCellKey(int row, int col)
+    {
+        return ((long)row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,341 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.Arrays;
+import net.opengis.swe.v20.Count;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.Quantity;
+import net.opengis.swe.v20.Time;
+
+
+/**
+ * <p>
+ * Compact encoding of batches of sensor records inspired by Facebook's
+ * Gorilla time series compression. Each record must start with a time stamp
+ * (seconds since 1970) followed by values that are encoded as float32.<br/>
+ * Time stamps are converted to microseconds and encoded as delta-of-delta,
+ * so regularly sampled data only takes 1 bit per time stamp. Each value is
+ * XORed with the previous value of the same component and only the
+ * meaningful bits of the result are written.
+ * </p><p>
+ * Stream layout: version (8 bits), number of records (32 bits), number of
+ * values per record (8 bits), followed by the bit stream of records.
+ * Records must therefore be flat with at most 255 numerical values, which
+ * can be checked with {@link #checkStructure}.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class GorillaCodec
+{
+    public static final String COMPRESSION_ID = "x-gorilla";
+    static final int VERSION = 1;
+    static final int MAX_VALUES = 255;
+    
+    // encoder state
+    byte[] buf = new byte[1024];
+    int bitPos;
+    
+    // decoder state
+    byte[] input;
+    
+    // state shared by encoder and decoder
+    long prevTime;
+    long prevDelta;
+    int[] prevValues;
+    int[] prevLeading;
+    int[] prevTrailing;
+    
+    
+    /**
+     * Checks that records with the given structure can be encoded, that is
+     * a time stamp followed by at most MAX_VALUES quantities or counts
+     * @param recordStruct structure of the records
+     * @throws IllegalArgumentException if the structure is not supported
+     */
+    public static void checkStructure(DataComponent recordStruct)
+    {
+        if (recordStruct.getComponentCount() == 0 || !(recordStruct.getComponent(0) instanceof Time))
+            throw new IllegalArgumentException("Records must start with a time stamp");
+        
+        int numValues = 0;
+        for (int i = 1; i < recordStruct.getComponentCount(); i++)
+            numValues += countValues(recordStruct.getComponent(i));
+        
+        if (numValues > MAX_VALUES)
+            throw new IllegalArgumentException("Records have more than " + MAX_VALUES + " values: " + numValues);
+    }
+    
+    
+    private static int countValues(DataComponent parent)
+    {
+        if (parent instanceof Quantity || parent instanceof Count)
+            return 1;
+        
+        if (parent instanceof DataArray || parent.getComponentCount() == 0)
+            throw new IllegalArgumentException("Unsupported component: " + parent.getName());
+        
+        int numValues = 0;
+        for (int i = 0; i < parent.getComponentCount(); i++)
+            numValues += countValues(parent.getComponent(i));
+        return numValues;
+    }
+    
+    
+    /**
+     * Encodes the first numRecords records of the given array
+     * @param records records to encode
+     * @param numRecords number of records to encode
+     * @return encoded bytes
+     */
+    public byte[] encode(DataBlock[] records, int numRecords)
+    {
+        int numValues = (numRecords > 0) ? records[0].getAtomCount() - 1 : 0;
+        if (numValues > MAX_VALUES)
+            throw new IllegalArgumentException("Records have more than " + MAX_VALUES + " values: " + numValues);
+        resetState(numValues);
+        bitPos = 0;
+        
+        writeBits(VERSION, 8);
+        writeBits(numRecords, 32);
+        writeBits(numValues, 8);
+        
+        for (int r = 0; r < numRecords; r++)
+        {
+            DataBlock rec = records[r];
+            writeTime(r, Math.round(rec.getDoubleValue(0) * 1e6));
+            for (int i = 0; i < numValues; i++)
+                writeValue(r, i, Float.floatToRawIntBits(rec.getFloatValue(i+1)));
+        }
+        
+        return Arrays.copyOf(buf, (bitPos + 7) / 8);
+    }
+    
+    
+    /**
+     * Decodes records previously encoded with {@link #encode}
+     * @param data encoded bytes
+     * @param recordStruct structure of the records
+     * @return array of decoded records
+     */
+    public DataBlock[] decode(byte[] data, DataComponent recordStruct)
+    {
+        input = data;
+        bitPos = 0;
+        
+        int version = (int)readBits(8);
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported encoding version: " + version);
+        int numRecords = (int)readBits(32);
+        int numValues = (int)readBits(8);
+        resetState(numValues);
+        
+        DataBlock[] records = new DataBlock[numRecords];
+        for (int r = 0; r < numRecords; r++)
+        {
+            DataBlock rec = recordStruct.createDataBlock();
+            rec.setDoubleValue(0, readTime(r) / 1e6);
+            for (int i = 0; i < numValues; i++)
+                rec.setFloatValue(i+1, Float.intBitsToFloat(readValue(r, i)));
+            records[r] = rec;
+        }
+        
+        input = null;
+        return records;
+    }
+    
+    
+    private void resetState(int numValues)
+    {
+        prevTime = 0;
+        prevDelta = 0;
+        if (prevValues == null || prevValues.length != numValues)
+        {
+            prevValues = new int[numValues];
+            prevLeading = new int[numValues];
+            prevTrailing = new int[numValues];
+        }
+    }
+    
+    
+    private void writeTime(int index, long time)
+    {
+        if (index == 0)
+        {
+            writeBits(time, 64);
+            prevTime = time;
+            return;
+        }
+        
+        long delta = time - prevTime;
+        long dod = delta - prevDelta;
+        prevTime = time;
+        prevDelta = delta;
+        
+        if (dod == 0)
+            writeBits(0, 1);
+        else if (dod >= -64 && dod <= 63)
+        {
+            writeBits(0b10, 2);
+            writeBits(dod, 7);
+        }
+        else if (dod >= -256 && dod <= 255)
+        {
+            writeBits(0b110, 3);
+            writeBits(dod, 9);
+        }
+        else if (dod >= -2048 && dod <= 2047)
+        {
+            writeBits(0b1110, 4);
+            writeBits(dod, 12);
+        }
+        else
+        {
+            writeBits(0b1111, 4);
+            writeBits(dod, 64);
+        }
+    }
+    
+    
+    private long readTime(int index)
+    {
+        if (index == 0)
+        {
+            prevTime = readBits(64);
+            return prevTime;
+        }
+        
+        long dod;
+        if (readBits(1) == 0)
+            dod = 0;
+        else if (readBits(1) == 0)
+            dod = readSignedBits(7);
+        else if (readBits(1) == 0)
+            dod = readSignedBits(9);
+        else if (readBits(1) == 0)
+            dod = readSignedBits(12);
+        else
+            dod = readBits(64);
+        
+        prevDelta += dod;
+        prevTime += prevDelta;
+        return prevTime;
+    }
+    
+    
+    private void writeValue(int index, int c, int bits)
+    {
+        if (index == 0)
+        {
+            writeBits(bits, 32);
+            prevValues[c] = bits;
+            prevLeading[c] = -1;
+            return;
+        }
+        
+        int xor = bits ^ prevValues[c];
+        prevValues[c] = bits;
+        if (xor == 0)
+        {
+            writeBits(0, 1);
+            return;
+        }
+        
+        int leading = Math.min(31, Integer.numberOfLeadingZeros(xor));
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        
+        // reuse previous window if meaningful bits fit in it
+        if (prevLeading[c] >= 0 && leading >= prevLeading[c] && trailing >= prevTrailing[c])
+        {
+            writeBits(0b10, 2);
+            writeBits(xor >>> prevTrailing[c], 32 - prevLeading[c] - prevTrailing[c]);
+        }
+        else
+        {
+            int length = 32 - leading - trailing;
+            writeBits(0b11, 2);
+            writeBits(leading, 5);
+            writeBits(length - 1, 5);
+            writeBits(xor >>> trailing, length);
+            prevLeading[c] = leading;
+            prevTrailing[c] = trailing;
+        }
+    }
+    
+    
+    private int readValue(int index, int c)
+    {
+        if (index == 0)
+        {
+            prevValues[c] = (int)readBits(32);
+            prevLeading[c] = -1;
+            return prevValues[c];
+        }
+        
+        if (readBits(1) == 0)
+            return prevValues[c];
+        
+        if (readBits(1) == 1)
+        {
+            prevLeading[c] = (int)readBits(5);
+            int length = (int)readBits(5) + 1;
+            prevTrailing[c] = 32 - prevLeading[c] - length;
+        }
+        
+        int length = 32 - prevLeading[c] - prevTrailing[c];
+        int xor = (int)readBits(length) << prevTrailing[c];
+        prevValues[c] ^= xor;
+        return prevValues[c];
+    }
+    
+    
+    private void writeBits(long value, int numBits)
+    {
+        if (bitPos + numBits > buf.length * 8)
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, (bitPos + numBits) / 8 + 1));
+        
+        for (int i = numBits - 1; i >= 0; i--)
+        {
+            if (((value >>> i) & 1) != 0)
+                buf[bitPos >>> 3] |= (byte)(0x80 >>> (bitPos & 7));
+            else
+                buf[bitPos >>> 3] &= (byte)~(0x80 >>> (bitPos & 7));
+            bitPos++;
+        }
+    }
+    
+    
+    private long readBits(int numBits)
+    {
+        long value = 0;
+        for (int i = 0; i < numBits; i++)
+        {
+            int bit = (input[bitPos >>> 3] >>> (7 - (bitPos & 7))) & 1;
+            value = (value << 1) | bit;
+            bitPos++;
+        }
+        return value;
+    }
+    
+    
+    private long readSignedBits(int numBits)
+    {
+        long value = readBits(numBits);
+        return (value << (64 - numBits)) >> (64 - numBits);
+    }
+}
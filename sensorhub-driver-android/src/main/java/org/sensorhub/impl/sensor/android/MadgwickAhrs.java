@@ -0,0 +1,203 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import org.sensorhub.algo.vecmath.Quat4d;
+
+
+/**
+ * <p>
+ * Madgwick gradient descent orientation filter fusing gyrometer,
+ * accelerometer and (optionally) magnetometer measurements.<br/>
+ * The estimated quaternion rotates vectors from the sensor frame to an
+ * earth frame with X pointing to magnetic north, Y west and Z up.
+ * Updates don't allocate any object.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class MadgwickAhrs
+{
+    final Quat4d q = new Quat4d();
+    double beta;
+    
+    
+    MadgwickAhrs(double beta)
+    {
+        this.beta = beta;
+        reset();
+    }
+    
+    
+    void reset()
+    {
+        q.x = q.y = q.z = 0.0;
+        q.s = 1.0;
+    }
+    
+    
+    /*
+     * Updates orientation with angular rates (rad/s), acceleration and
+     * magnetic field over a time step dt (s). Units of acceleration and
+     * magnetic field don't matter since they are normalized. If magnetic
+     * field is all zeros, only gyro and accel are used.
+     */
+    void update(double gx, double gy, double gz, double ax, double ay, double az, double mx, double my, double mz, double dt)
+    {
+        if (mx == 0.0 && my == 0.0 && mz == 0.0)
+        {
+            update(gx, gy, gz, ax, ay, az, dt);
+            return;
+        }
+        
+        double q0 = q.s, q1 = q.x, q2 = q.y, q3 = q.z;
+        
+        // rate of change of quaternion from gyro
+        double qDot1 = 0.5 * (-q1 * gx - q2 * gy - q3 * gz);
+        double qDot2 = 0.5 * (q0 * gx + q2 * gz - q3 * gy);
+        double qDot3 = 0.5 * (q0 * gy - q1 * gz + q3 * gx);
+        double qDot4 = 0.5 * (q0 * gz + q1 * gy - q2 * gx);
+        
+        double aNorm = Math.sqrt(ax * ax + ay * ay + az * az);
+        if (aNorm > 0.0)
+        {
+            ax /= aNorm;
+            ay /= aNorm;
+            az /= aNorm;
+            
+            double mNorm = Math.sqrt(mx * mx + my * my + mz * mz);
+            mx /= mNorm;
+            my /= mNorm;
+            mz /= mNorm;
+            
+            double _2q0mx = 2.0 * q0 * mx;
+            double _2q0my = 2.0 * q0 * my;
+            double _2q0mz = 2.0 * q0 * mz;
+            double _2q1mx = 2.0 * q1 * mx;
+            double _2q0 = 2.0 * q0;
+            double _2q1 = 2.0 * q1;
+            double _2q2 = 2.0 * q2;
+            double _2q3 = 2.0 * q3;
+            double _2q0q2 = 2.0 * q0 * q2;
+            double _2q2q3 = 2.0 * q2 * q3;
+            double q0q0 = q0 * q0;
+            double q0q1 = q0 * q1;
+            double q0q2 = q0 * q2;
+            double q0q3 = q0 * q3;
+            double q1q1 = q1 * q1;
+            double q1q2 = q1 * q2;
+            double q1q3 = q1 * q3;
+            double q2q2 = q2 * q2;
+            double q2q3 = q2 * q3;
+            double q3q3 = q3 * q3;
+            
+            // reference direction of earth magnetic field
+            double hx = mx * q0q0 - _2q0my * q3 + _2q0mz * q2 + mx * q1q1 + _2q1 * my * q2 + _2q1 * mz * q3 - mx * q2q2 - mx * q3q3;
+            double hy = _2q0mx * q3 + my * q0q0 - _2q0mz * q1 + _2q1mx * q2 - my * q1q1 + my * q2q2 + _2q2 * mz * q3 - my * q3q3;
+            double _2bx = Math.sqrt(hx * hx + hy * hy);
+            double _2bz = -_2q0mx * q2 + _2q0my * q1 + mz * q0q0 + _2q1mx * q3 - mz * q1q1 + _2q2 * my * q3 - mz * q2q2 + mz * q3q3;
+            double _4bx = 2.0 * _2bx;
+            double _4bz = 2.0 * _2bz;
+            
+            // gradient descent corrective step
+            double fax = 2.0 * q1q3 - _2q0q2 - ax;
+            double fay = 2.0 * q0q1 + _2q2q3 - ay;
+            double faz = 1.0 - 2.0 * q1q1 - 2.0 * q2q2 - az;
+            double fmx = _2bx * (0.5 - q2q2 - q3q3) + _2bz * (q1q3 - q0q2) - mx;
+            double fmy = _2bx * (q1q2 - q0q3) + _2bz * (q0q1 + q2q3) - my;
+            double fmz = _2bx * (q0q2 + q1q3) + _2bz * (0.5 - q1q1 - q2q2) - mz;
+            double s0 = -_2q2 * fax + _2q1 * fay - _2bz * q2 * fmx + (-_2bx * q3 + _2bz * q1) * fmy + _2bx * q2 * fmz;
+            double s1 = _2q3 * fax + _2q0 * fay - 2.0 * _2q1 * faz + _2bz * q3 * fmx + (_2bx * q2 + _2bz * q0) * fmy + (_2bx * q3 - _4bz * q1) * fmz;
+            double s2 = -_2q0 * fax + _2q3 * fay - 2.0 * _2q2 * faz + (-_4bx * q2 - _2bz * q0) * fmx + (_2bx * q1 + _2bz * q3) * fmy + (_2bx * q0 - _4bz * q2) * fmz;
+            double s3 = _2q1 * fax + _2q2 * fay + (-_4bx * q3 + _2bz * q1) * fmx + (-_2bx * q0 + _2bz * q2) * fmy + _2bx * q1 * fmz;
+            
+            double sNorm = Math.sqrt(s0 * s0 + s1 * s1 + s2 * s2 + s3 * s3);
+            if (sNorm > 0.0)
+            {
+                qDot1 -= beta * s0 / sNorm;
+                qDot2 -= beta * s1 / sNorm;
+                qDot3 -= beta * s2 / sNorm;
+                qDot4 -= beta * s3 / sNorm;
+            }
+        }
+        
+        integrate(qDot1, qDot2, qDot3, qDot4, dt);
+    }
+    
+    
+    /*
+     * Updates orientation with angular rates and acceleration only.
+     * Heading is then only given by gyro integration.
+     */
+    void update(double gx, double gy, double gz, double ax, double ay, double az, double dt)
+    {
+        double q0 = q.s, q1 = q.x, q2 = q.y, q3 = q.z;
+        
+        // rate of change of quaternion from gyro
+        double qDot1 = 0.5 * (-q1 * gx - q2 * gy - q3 * gz);
+        double qDot2 = 0.5 * (q0 * gx + q2 * gz - q3 * gy);
+        double qDot3 = 0.5 * (q0 * gy - q1 * gz + q3 * gx);
+        double qDot4 = 0.5 * (q0 * gz + q1 * gy - q2 * gx);
+        
+        double aNorm = Math.sqrt(ax * ax + ay * ay + az * az);
+        if (aNorm > 0.0)
+        {
+            ax /= aNorm;
+            ay /= aNorm;
+            az /= aNorm;
+            
+            double _2q0 = 2.0 * q0;
+            double _2q1 = 2.0 * q1;
+            double _2q2 = 2.0 * q2;
+            double _2q3 = 2.0 * q3;
+            double _4q0 = 4.0 * q0;
+            double _4q1 = 4.0 * q1;
+            double _4q2 = 4.0 * q2;
+            double _8q1 = 8.0 * q1;
+            double _8q2 = 8.0 * q2;
+            double q0q0 = q0 * q0;
+            double q1q1 = q1 * q1;
+            double q2q2 = q2 * q2;
+            double q3q3 = q3 * q3;
+            
+            // gradient descent corrective step
+            double s0 = _4q0 * q2q2 + _2q2 * ax + _4q0 * q1q1 - _2q1 * ay;
+            double s1 = _4q1 * q3q3 - _2q3 * ax + 4.0 * q0q0 * q1 - _2q0 * ay - _4q1 + _8q1 * q1q1 + _8q1 * q2q2 + _4q1 * az;
+            double s2 = 4.0 * q0q0 * q2 + _2q0 * ax + _4q2 * q3q3 - _2q3 * ay - _4q2 + _8q2 * q1q1 + _8q2 * q2q2 + _4q2 * az;
+            double s3 = 4.0 * q1q1 * q3 - _2q1 * ax + 4.0 * q2q2 * q3 - _2q2 * ay;
+            
+            double sNorm = Math.sqrt(s0 * s0 + s1 * s1 + s2 * s2 + s3 * s3);
+            if (sNorm > 0.0)
+            {
+                qDot1 -= beta * s0 / sNorm;
+                qDot2 -= beta * s1 / sNorm;
+                qDot3 -= beta * s2 / sNorm;
+                qDot4 -= beta * s3 / sNorm;
+            }
+        }
+        
+        integrate(qDot1, qDot2, qDot3, qDot4, dt);
+    }
+    
+    
+    private void integrate(double qDot1, double qDot2, double qDot3, double qDot4, double dt)
+    {
+        q.s += qDot1 * dt;
+        q.x += qDot2 * dt;
+        q.y += qDot3 * dt;
+        q.z += qDot4 * dt;
+        q.normalize();
+    }
+}
@@ -0,0 +1,194 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.Handler;
+
+
+/**
+ * <p>
+ * Detects when the device is stationary using the accelerometer at low rate.
+ * The device is considered stationary when the deviation of acceleration from
+ * its low-pass filtered value stays below the threshold for the configured
+ * delay. When the significant motion sensor is available, the accelerometer
+ * is turned off while stationary and motion is detected by this sensor only.
+ * Otherwise the accelerometer stays on at low rate, so only the savings on
+ * location requests remain.<br/>
+ * A single detector is shared by all outputs using it, so the accelerometer
+ * is only registered once. All callbacks are called in the thread of the
+ * given handler.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class MotionDetector implements SensorEventListener
+{
+    private static final double FILTER_ALPHA = 0.1;
+    
+    interface MotionListener
+    {
+        void onMotionStateChanged(boolean moving);
+    }
+    
+    SensorManager sensorManager;
+    Sensor accelSensor;
+    Sensor sigMotionSensor;
+    List<MotionListener> listeners = new CopyOnWriteArrayList<MotionListener>();
+    Handler handler;
+    double threshold; // m/s2
+    long stationaryDelay; // ns
+    
+    boolean moving;
+    boolean hasMean;
+    long lastMotionTime;
+    double[] mean = new double[3];
+    
+    TriggerEventListener sigMotionListener = new TriggerEventListener()
+    {
+        @Override
+        public void onTrigger(final TriggerEvent e)
+        {
+            // trigger is received in main thread
+            Handler h = handler;
+            if (h != null)
+                h.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (handler != null)
+                            setMoving(e.timestamp);
+                    }
+                });
+        }
+    };
+    
+    
+    MotionDetector(SensorManager sensorManager, double threshold, double stationaryDelay)
+    {
+        this.sensorManager = sensorManager;
+        this.accelSensor = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        this.sigMotionSensor = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+        this.threshold = threshold;
+        this.stationaryDelay = (long)(stationaryDelay * 1e9);
+    }
+    
+    
+    boolean isAvailable()
+    {
+        return accelSensor != null;
+    }
+    
+    
+    void addListener(MotionListener listener)
+    {
+        listeners.add(listener);
+    }
+    
+    
+    void removeListener(MotionListener listener)
+    {
+        listeners.remove(listener);
+    }
+    
+    
+    void start(Handler handler)
+    {
+        this.handler = handler;
+        this.moving = true;
+        this.hasMean = false;
+        this.lastMotionTime = 0;
+        sensorManager.registerListener(this, accelSensor, SensorManager.SENSOR_DELAY_NORMAL, handler);
+    }
+    
+    
+    void stop()
+    {
+        sensorManager.unregisterListener(this);
+        if (sigMotionSensor != null)
+            sensorManager.cancelTriggerSensor(sigMotionListener, sigMotionSensor);
+        handler = null;
+    }
+    
+    
+    protected void setMoving(long timeStamp)
+    {
+        lastMotionTime = timeStamp;
+        if (moving)
+            return;
+        
+        moving = true;
+        hasMean = false;
+        if (sigMotionSensor != null)
+            sensorManager.registerListener(this, accelSensor, SensorManager.SENSOR_DELAY_NORMAL, handler);
+        for (MotionListener listener: listeners)
+            listener.onMotionStateChanged(true);
+    }
+    
+    
+    protected void setStationary()
+    {
+        moving = false;
+        if (sigMotionSensor != null)
+        {
+            sensorManager.unregisterListener(this);
+            sensorManager.requestTriggerSensor(sigMotionListener, sigMotionSensor);
+        }
+        for (MotionListener listener: listeners)
+            listener.onMotionStateChanged(false);
+    }
+
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int arg1)
+    {     
+    }
+
+
+    @Override
+    public void onSensorChanged(SensorEvent e)
+    {
+        if (!hasMean)
+        {
+            for (int i = 0; i < 3; i++)
+                mean[i] = e.values[i];
+            hasMean = true;
+            lastMotionTime = e.timestamp;
+            return;
+        }
+        
+        // compare to low-pass filtered acceleration
+        double dev2 = 0.0;
+        for (int i = 0; i < 3; i++)
+        {
+            double d = e.values[i] - mean[i];
+            dev2 += d * d;
+            mean[i] += FILTER_ALPHA * d;
+        }
+        
+        if (dev2 > threshold * threshold)
+            setMoving(e.timestamp);
+        else if (moving && e.timestamp - lastMotionTime > stationaryDelay)
+            setStationary();
+    }
+}
@@ -0,0 +1,103 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataBlock;
+import org.sensorhub.impl.sensor.android.AndroidSensorsConfig.PublishPolicyConfig;
+
+
+/**
+ * <p>
+ * Decides if a new record must be published, by comparing its values with
+ * the last published record. A record is published if at least one of its
+ * values moved beyond both its absolute and relative deadband, or if nothing
+ * was published for longer than the max silence period. Records closer than
+ * the min interval to the last published one are always dropped.<br/>
+ * The first value of each record must be the sampling time.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class PublishPolicy
+{
+    final double[] absDeadband;
+    final double[] relDeadband;
+    final double minInterval;
+    final double maxSilence;
+    double[] lastValues;
+    double lastTime = Double.NaN;
+    
+    
+    PublishPolicy(PublishPolicyConfig config)
+    {
+        this.absDeadband = config.absDeadband;
+        this.relDeadband = config.relDeadband;
+        this.minInterval = config.minInterval;
+        this.maxSilence = config.maxSilence;
+    }
+    
+    
+    boolean accept(DataBlock rec)
+    {
+        int numValues = rec.getAtomCount() - 1;
+        double time = rec.getDoubleValue(0);
+        
+        // always publish first record
+        if (Double.isNaN(lastTime))
+        {
+            lastValues = new double[numValues];
+            saveValues(rec, time);
+            return true;
+        }
+        
+        double dt = time - lastTime;
+        if (dt < minInterval)
+            return false;
+        
+        boolean changed = (maxSilence > 0 && dt >= maxSilence);
+        for (int i = 0; i < numValues && !changed; i++)
+        {
+            double last = lastValues[i];
+            double delta = Math.abs(rec.getDoubleValue(i+1) - last);
+            changed = delta > getDeadband(absDeadband, i) &&
+                      delta > getDeadband(relDeadband, i) * Math.abs(last);
+        }
+        
+        if (changed)
+            saveValues(rec, time);
+        return changed;
+    }
+    
+    
+    private void saveValues(DataBlock rec, double time)
+    {
+        lastTime = time;
+        for (int i = 0; i < lastValues.length; i++)
+            lastValues[i] = rec.getDoubleValue(i+1);
+    }
+    
+    
+    /*
+     * A single deadband value applies to all components
+     */
+    private static double getDeadband(double[] deadbands, int index)
+    {
+        if (deadbands == null || deadbands.length == 0)
+            return 0.0;
+        if (deadbands.length == 1)
+            return deadbands[0];
+        return (index < deadbands.length) ? deadbands[index] : 0.0;
+    }
+}
@@ -0,0 +1,169 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.Quantity;
+import org.vast.swe.SWEHelper;
+
+
+/**
+ * <p>
+ * Fixed-point quantization of the Quantity values of sensor records, so they
+ * can be sent as 16 or 32-bit integers. The resolution is the requested one,
+ * or the finest one allowing the whole range to fit in the integer type. It
+ * is only rounded up to 6 significant digits so the scale can be declared
+ * with a standard UCUM unit made of an integer factor and a power of 10 (e.g.
+ * values in 10*-2.m/s2 for a resolution of 0.01 m/s2, or in 10651.10*-7.rad/s
+ * for a 34.9 rad/s range sent as 16-bit integers). The original unit and
+ * resolution are also declared as a quality of each component. Offset is
+ * always 0 and the quantization error is at most half the resolution.<br/>
+ * Resolution and range are given for each top-level component of the record
+ * (e.g. each vector), so records combining several sensors are scaled
+ * according to the sensor providing each vector.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class Quantizer
+{
+    static final String DEF_RESOLUTION = SWEHelper.getPropertyUri("Resolution");
+    static final int SIGNIFICANT_DIGITS = 6;
+    
+    final DataType dataType;
+    final double maxValue;
+    final double[] resolutions; // one per atom of the record, 0 if not quantized
+    
+    
+    /*
+     * Computes, for each top-level component of the record, the requested
+     * resolution or the one ensuring values within +/- range fit in data type
+     * if it is larger
+     */
+    Quantizer(DataComponent dataStruct, double[] resolutions, double[] ranges, boolean useInt32)
+    {
+        this.dataType = useInt32 ? DataType.INT : DataType.SHORT;
+        this.maxValue = useInt32 ? Integer.MAX_VALUE : Short.MAX_VALUE;
+        
+        SWEHelper fac = new SWEHelper();
+        List<Double> atomResolutions = new ArrayList<Double>();
+        for (int i = 0; i < dataStruct.getComponentCount(); i++)
+        {
+            DataComponent c = dataStruct.getComponent(i);
+            double res = Math.max(resolutions[i], ranges[i] / maxValue);
+            if (!(res > 0.0))
+            {
+                // no quantization possible without resolution or range
+                collectAtoms(c, 0.0, atomResolutions);
+                continue;
+            }
+            
+            // round up to an integer factor times a power of 10
+            int exp = (int)Math.floor(Math.log10(res)) - (SIGNIFICANT_DIGITS - 1);
+            long factor = (long)Math.ceil(res / Math.pow(10, exp) - 1e-6);
+            while (factor % 10 == 0)
+            {
+                factor /= 10;
+                exp++;
+            }
+            
+            double resolution = factor * Math.pow(10, exp);
+            String scale = (factor > 1 ? factor + "." : "") + "10*" + exp;
+            collectAtoms(c, resolution, atomResolutions);
+            scaleUnits(fac, c, scale, resolution);
+        }
+        
+        this.resolutions = new double[atomResolutions.size()];
+        for (int i = 0; i < this.resolutions.length; i++)
+            this.resolutions[i] = atomResolutions.get(i);
+    }
+    
+    
+    private static void collectAtoms(DataComponent parent, double resolution, List<Double> atomResolutions)
+    {
+        if (parent instanceof DataArray)
+        {
+            DataArray array = (DataArray)parent;
+            for (int i = 0; i < array.getElementCount().getValue(); i++)
+                collectAtoms(array.getElementType(), resolution, atomResolutions);
+        }
+        else if (parent.getComponentCount() == 0)
+            atomResolutions.add(parent instanceof Quantity ? resolution : 0.0);
+        else
+        {
+            for (int i = 0; i < parent.getComponentCount(); i++)
+                collectAtoms(parent.getComponent(i), resolution, atomResolutions);
+        }
+    }
+    
+    
+    private static void scaleUnits(SWEHelper fac, DataComponent parent, String scale, double resolution)
+    {
+        if (parent instanceof DataArray)
+            scaleUnits(fac, ((DataArray)parent).getElementType(), scale, resolution);
+        else if (parent instanceof Quantity)
+        {
+            Quantity q = (Quantity)parent;
+            String uom = q.getUom().getCode();
+            if (uom == null || uom.equals("1"))
+                uom = "1";
+            
+            Quantity res = fac.createQuantity()
+                .definition(DEF_RESOLUTION)
+                .label("Resolution")
+                .uomCode(uom)
+                .build();
+            res.setValue(resolution);
+            q.addQuality(res);
+            q.getUom().setCode(scale + (uom.equals("1") ? "" : "." + uom));
+            
+            // also scale allowed intervals
+            if (q.getConstraint() != null)
+            {
+                for (double[] interval: q.getConstraint().getIntervalList())
+                {
+                    for (int i = 0; i < interval.length; i++)
+                        interval[i] = Math.rint(interval[i] / resolution);
+                }
+            }
+        }
+        else
+        {
+            for (int i = 0; i < parent.getComponentCount(); i++)
+                scaleUnits(fac, parent.getComponent(i), scale, resolution);
+        }
+    }
+    
+    
+    /*
+     * Replaces values of the record by their quantized value
+     */
+    void quantize(DataBlock rec)
+    {
+        for (int i = 0; i < resolutions.length; i++)
+        {
+            if (resolutions[i] > 0)
+            {
+                double val = Math.rint(rec.getDoubleValue(i) / resolutions[i]);
+                rec.setDoubleValue(i, Math.max(-maxValue, Math.min(maxValue, val)));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataBlock;
+import org.sensorhub.api.sensor.ISensorDataInterface;
+import org.sensorhub.api.sensor.SensorDataEvent;
+
+
+/**
+ * <p>
+ * Data event that is recycled by sensor outputs to avoid allocating a new
+ * event for each sample. The event and its records are owned by the output
+ * and will be overwritten once the output has cycled through its pool, so
+ * listeners must copy records they need to keep after handling the event.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class ReusableSensorDataEvent extends SensorDataEvent
+{
+    
+    ReusableSensorDataEvent(ISensorDataInterface source, int numRecords)
+    {
+        super(0L, source, new DataBlock[numRecords]);
+    }
+    
+    
+    void reset(long timeStamp, DataBlock record)
+    {
+        this.timeStamp = timeStamp;
+        this.records[0] = record;
+    }
+    
+    
+    void reset(long timeStamp, DataBlock[] recordBatch)
+    {
+        this.timeStamp = timeStamp;
+        System.arraycopy(recordBatch, 0, this.records, 0, this.records.length);
+    }
+}
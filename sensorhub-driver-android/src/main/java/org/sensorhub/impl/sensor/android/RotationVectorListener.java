@@ -0,0 +1,125 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.sensorhub.algo.vecmath.Quat4d;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+
+
+/**
+ * <p>
+ * Listener shared by all outputs derived from the same rotation vector
+ * sensor. It registers only once with the sensor manager for each handler
+ * used by these outputs, converts each rotation vector to a normalized
+ * quaternion and dispatches it to the outputs using this handler, so
+ * outputs always receive samples in their own thread.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class RotationVectorListener
+{
+    SensorManager sensorManager;
+    Sensor sensor;
+    Map<Handler, HandlerGroup> groups = new HashMap<Handler, HandlerGroup>();
+    
+    
+    /*
+     * Listener registered for all outputs sharing the same handler
+     */
+    class HandlerGroup implements SensorEventListener
+    {
+        volatile AndroidOrientationOutput[] outputs = new AndroidOrientationOutput[0];
+        Quat4d att = new Quat4d();
+        int registeredRateUs = Integer.MAX_VALUE;
+        
+        
+        @Override
+        public void onAccuracyChanged(Sensor sensor, int arg1)
+        {
+        }
+        
+        
+        @Override
+        public void onSensorChanged(SensorEvent e)
+        {
+            // convert to quaternion + normalize only once for all outputs
+            AndroidOrientationQuatOutput.getQuaternionFromVector(att, e.values);
+            att.normalize();
+            
+            AndroidOrientationOutput[] outputs = this.outputs;
+            for (int i = 0; i < outputs.length; i++)
+                outputs[i].onOrientationChanged(e.timestamp, att);
+        }
+    }
+    
+    
+    RotationVectorListener(SensorManager sensorManager, Sensor sensor)
+    {
+        this.sensorManager = sensorManager;
+        this.sensor = sensor;
+    }
+    
+    
+    synchronized void addOutput(AndroidOrientationOutput output, int rateUs, int maxLatencyUs, Handler eventHandler)
+    {
+        HandlerGroup group = groups.get(eventHandler);
+        if (group == null)
+            groups.put(eventHandler, group = new HandlerGroup());
+        
+        AndroidOrientationOutput[] newOutputs = Arrays.copyOf(group.outputs, group.outputs.length + 1);
+        newOutputs[group.outputs.length] = output;
+        group.outputs = newOutputs;
+        
+        // (re)register at the fastest rate requested by outputs of this group
+        if (rateUs < group.registeredRateUs)
+        {
+            if (group.registeredRateUs != Integer.MAX_VALUE)
+                sensorManager.unregisterListener(group, sensor);
+            sensorManager.registerListener(group, sensor, rateUs, maxLatencyUs, eventHandler);
+            group.registeredRateUs = rateUs;
+        }
+    }
+    
+    
+    synchronized void removeOutput(AndroidOrientationOutput output)
+    {
+        for (Handler handler: groups.keySet().toArray(new Handler[0]))
+        {
+            HandlerGroup group = groups.get(handler);
+            int count = 0;
+            AndroidOrientationOutput[] newOutputs = new AndroidOrientationOutput[group.outputs.length];
+            for (AndroidOrientationOutput o: group.outputs)
+            {
+                if (o != output)
+                    newOutputs[count++] = o;
+            }
+            group.outputs = Arrays.copyOf(newOutputs, count);
+            
+            if (count == 0)
+            {
+                sensorManager.unregisterListener(group, sensor);
+                groups.remove(handler);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+
+
+/**
+ * <p>
+ * Bounded history of the latest records produced by an output, stored as
+ * primitive values in a ring buffer. Records are added by a single producer
+ * thread (the sensor thread) and can be read from any other thread without
+ * locking. Readers simply discard the samples that the producer overwrote
+ * while they were being copied.<br/>
+ * The first value of each record must be the sampling time.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+class SampleHistory
+{
+    final int capacity;
+    final int recordSize;
+    final double[] samples;
+    volatile long writeCount;
+    
+    
+    SampleHistory(int capacity, int recordSize)
+    {
+        this.capacity = capacity;
+        this.recordSize = recordSize;
+        this.samples = new double[capacity * recordSize];
+    }
+    
+    
+    /*
+     * Copies a record to the history. Must always be called from the same thread.
+     */
+    void add(DataBlock rec)
+    {
+        long count = writeCount;
+        int offset = (int)(count % capacity) * recordSize;
+        for (int i = 0; i < recordSize; i++)
+            samples[offset + i] = rec.getDoubleValue(i);
+        
+        // volatile write makes the new sample visible to readers
+        writeCount = count + 1;
+    }
+    
+    
+    /*
+     * Gets records sampled strictly after the given time, oldest first
+     */
+    DataBlock[] getRecordsSince(double time, DataComponent recordStruct)
+    {
+        long end = writeCount;
+        long min = Math.max(0, end - capacity);
+        
+        // scan backward from newest sample to find the first one after time
+        long first = end;
+        while (first > min && samples[offset(first - 1)] > time)
+            first--;
+        
+        // copy samples
+        int numRecords = (int)(end - first);
+        double[] values = new double[numRecords * recordSize];
+        for (int i = 0; i < numRecords; i++)
+            System.arraycopy(samples, offset(first + i), values, i * recordSize, recordSize);
+        
+        // skip samples that were overwritten while we were copying
+        // (the slot of the sample being written next is not safe either)
+        long validStart = writeCount - capacity + 1;
+        int skip = (int)Math.min(numRecords, Math.max(0, validStart - first));
+        
+        DataBlock[] records = new DataBlock[numRecords - skip];
+        for (int i = 0; i < records.length; i++)
+        {
+            DataBlock rec = recordStruct.createDataBlock();
+            int offset = (skip + i) * recordSize;
+            for (int j = 0; j < recordSize; j++)
+                rec.setDoubleValue(j, values[offset + j]);
+            records[i] = rec;
+        }
+        
+        return records;
+    }
+    
+    
+    private final int offset(long index)
+    {
+        return (int)(index % capacity) * recordSize;
+    }
+}
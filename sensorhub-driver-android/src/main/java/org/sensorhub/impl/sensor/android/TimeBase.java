@@ -0,0 +1,116 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import android.os.SystemClock;
+
+
+/**
+ * <p>
+ * Time base shared by all outputs of the driver to convert time stamps given
+ * by the elapsedRealtimeNanos clock (sensor events, camera frames) to UTC.
+ * <br/>The offset between both clocks is re-estimated periodically with an
+ * alpha-beta filter that tracks the drift of the monotonic clock relative to
+ * the (NTP corrected) system clock, and is reset when the system clock jumps.
+ * Conversion only reads the current offset, and the clocks are only read
+ * again when a time stamp is more than UPDATE_PERIOD after the last update,
+ * so it is cheap to call for every sample, from any thread.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ */
+public class TimeBase
+{
+    static final long UPDATE_PERIOD = 10000000000L; // ns
+    static final long MAX_STEP = 500000000L; // ns
+    static final double ALPHA = 0.1;
+    static final double BETA = 0.005;
+    
+    volatile long offset; // ns, UTC - elapsedRealtime
+    volatile long lastUpdate = Long.MIN_VALUE; // elapsedRealtime ns
+    double drift; // ns per ns
+    
+    
+    /**
+     * Converts a time stamp from the elapsedRealtimeNanos clock to UTC
+     * @param elapsedRealtimeNanos time stamp in ns since boot
+     * @return julian time in seconds since 1970
+     */
+    public final double getJulianTime(long elapsedRealtimeNanos)
+    {
+        // check for first update explicitly since difference would overflow
+        long last = lastUpdate;
+        if (last == Long.MIN_VALUE || elapsedRealtimeNanos - last > UPDATE_PERIOD)
+            update();
+        
+        return (elapsedRealtimeNanos + offset) / 1e9;
+    }
+    
+    
+    /**
+     * Re-estimates the clock offset now
+     */
+    public synchronized void update()
+    {
+        // bracket system clock reading to reduce uncertainty
+        long t0 = getElapsedRealtimeNanos();
+        long now = getCurrentTimeMillis() * 1000000L;
+        long t1 = getElapsedRealtimeNanos();
+        long t = t0 + (t1 - t0) / 2;
+        long measuredOffset = now - t;
+        
+        // another thread may have just updated
+        if (lastUpdate != Long.MIN_VALUE && t - lastUpdate < UPDATE_PERIOD / 2)
+            return;
+        
+        if (lastUpdate == Long.MIN_VALUE)
+        {
+            offset = measuredOffset;
+            drift = 0.0;
+        }
+        else
+        {
+            long dt = t - lastUpdate;
+            long predicted = offset + (long)(drift * dt);
+            long residual = measuredOffset - predicted;
+            
+            // restart filter when system clock was set
+            if (Math.abs(residual) > MAX_STEP)
+            {
+                offset = measuredOffset;
+                drift = 0.0;
+            }
+            else
+            {
+                offset = predicted + (long)(ALPHA * residual);
+                drift += BETA * residual / dt;
+            }
+        }
+        
+        lastUpdate = t;
+    }
+    
+    
+    protected long getElapsedRealtimeNanos()
+    {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+    
+    
+    protected long getCurrentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+}
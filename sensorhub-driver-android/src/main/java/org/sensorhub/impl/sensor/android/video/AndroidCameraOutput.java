@@ -92,7 +92,6 @@ public abstract class AndroidCameraOutput extends AbstractSensorOutput<AndroidSe
     DataComponent dataStruct;
     DataEncoding dataEncoding;
     int samplingPeriod;
-    long systemTimeOffset = -1L;
     int selectedPreset = 0;
 
 
@@ -486,11 +485,6 @@ public abstract class AndroidCameraOutput extends AbstractSensorOutput<AndroidSe
 
     protected double getJulianTimeStamp(long sensorTimeStampUs)
     {
-        long sensorTimeMillis = sensorTimeStampUs / 1000;
-
-        if (systemTimeOffset < 0)
-            systemTimeOffset = System.currentTimeMillis() - sensorTimeMillis;
-
-        return (systemTimeOffset + sensorTimeMillis) / 1000.;
+        return parentSensor.getTimeBase().getJulianTime(sensorTimeStampUs * 1000);
     }
 }
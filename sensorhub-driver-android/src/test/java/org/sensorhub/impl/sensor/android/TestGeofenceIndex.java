@@ -0,0 +1,215 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.BitSet;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class TestGeofenceIndex
+{
+    static final double CELL_SIZE = 0.01; // deg
+    
+    GeofenceIndex index;
+    
+    
+    @Before
+    public void setup()
+    {
+        index = new GeofenceIndex(CELL_SIZE);
+    }
+    
+    
+    private static double[] newRectangle(double minLat, double minLon, double maxLat, double maxLon)
+    {
+        return new double[] {minLat, minLon, minLat, maxLon, maxLat, maxLon, maxLat, minLon};
+    }
+    
+    
+    private BitSet find(double lat, double lon)
+    {
+        BitSet result = new BitSet();
+        index.findContaining(lat, lon, result);
+        return result;
+    }
+    
+    
+    private void checkInside(double lat, double lon, int... polygons)
+    {
+        BitSet expected = new BitSet();
+        for (int p: polygons)
+            expected.set(p);
+        assertEquals("Wrong polygons at " + lat + "," + lon, expected, find(lat, lon));
+    }
+    
+    
+    private static int count(Map<Long, int[]> cells, int p)
+    {
+        int n = 0;
+        for (int[] polygons: cells.values())
+        {
+            for (int i: polygons)
+            {
+                if (i == p)
+                    n++;
+            }
+        }
+        return n;
+    }
+    
+    
+    @Test
+    public void testSmallPolygonInFineGrid()
+    {
+        int p = index.add(newRectangle(48.851, 2.291, 48.859, 2.299));
+        index.build();
+        
+        assertTrue("Polygon not in fine grid", count(index.cells, p) > 0);
+        assertEquals(0, count(index.coarseCells, p));
+        assertEquals(0, index.largePolygons.length);
+        
+        checkInside(48.855, 2.295, p);
+        checkInside(48.8511, 2.2989, p);
+        checkInside(48.849, 2.295);
+        checkInside(48.855, 2.301);
+    }
+    
+    
+    @Test
+    public void testMediumPolygonInCoarseGrid()
+    {
+        // 50x50 fine cells, too many for fine grid
+        int p = index.add(newRectangle(40.0, -74.5, 40.5, -74.0));
+        index.build();
+        
+        assertEquals(0, count(index.cells, p));
+        assertTrue("Polygon not in coarse grid", count(index.coarseCells, p) > 0);
+        assertTrue(count(index.coarseCells, p) <= GeofenceIndex.MAX_CELLS_PER_POLYGON);
+        assertEquals(0, index.largePolygons.length);
+        
+        checkInside(40.25, -74.25, p);
+        checkInside(40.01, -74.49, p);
+        checkInside(40.49, -74.01, p);
+        checkInside(39.99, -74.25);
+        checkInside(40.25, -73.99);
+    }
+    
+    
+    @Test
+    public void testLargePolygonInList()
+    {
+        // too many cells even for coarse grid
+        int p = index.add(newRectangle(-20.0, -20.0, 20.0, 20.0));
+        index.build();
+        
+        assertEquals(0, count(index.cells, p));
+        assertEquals(0, count(index.coarseCells, p));
+        assertArrayEquals(new int[] {p}, index.largePolygons);
+        
+        checkInside(0.0, 0.0, p);
+        checkInside(-19.9, 19.9, p);
+        checkInside(20.1, 0.0);
+        checkInside(0.0, -20.1);
+    }
+    
+    
+    @Test
+    public void testNegativeCells()
+    {
+        // southern and western hemispheres, spanning several cells
+        int p = index.add(newRectangle(-33.875, -151.215, -33.855, -151.195));
+        index.build();
+        
+        // 3x3 distinct cells, negative rows and columns must not collide
+        assertEquals(9, index.cells.size());
+        assertEquals(9, count(index.cells, p));
+        
+        checkInside(-33.865, -151.205, p);
+        checkInside(-33.874, -151.214, p);
+        checkInside(-33.856, -151.196, p);
+        
+        // mirror point in positive cells must not match
+        checkInside(33.865, 151.205);
+        checkInside(-33.865, 151.205);
+        checkInside(33.865, -151.205);
+    }
+    
+    
+    @Test
+    public void testCellBoundaries()
+    {
+        // polygon around origin covers cells on both sides of 0
+        int p = index.add(newRectangle(-0.005, -0.005, 0.005, 0.005));
+        index.build();
+        
+        checkInside(0.0, 0.0, p);
+        checkInside(-0.001, -0.001, p);
+        checkInside(0.001, -0.001, p);
+        checkInside(-0.001, 0.001, p);
+        
+        // point exactly on a cell boundary inside another polygon
+        int q = index.add(newRectangle(0.015, 0.015, 0.025, 0.025));
+        index.build();
+        checkInside(0.02, 0.02, q);
+        checkInside(0.01, 0.01);
+    }
+    
+    
+    @Test
+    public void testOutsidePolygonInsideBbox()
+    {
+        // triangle only fills half of its bounding box
+        int p = index.add(new double[] {10.0, 10.0, 10.0, 10.008, 10.008, 10.0});
+        index.build();
+        
+        checkInside(10.002, 10.002, p);
+        checkInside(10.006, 10.006);
+    }
+    
+    
+    @Test
+    public void testOverlappingTiers()
+    {
+        int small = index.add(newRectangle(45.001, 5.001, 45.009, 5.009));
+        int medium = index.add(newRectangle(44.9, 4.9, 45.3, 5.3));
+        int large = index.add(newRectangle(40.0, 0.0, 50.0, 10.0));
+        index.build();
+        assertEquals(3, index.size());
+        
+        checkInside(45.005, 5.005, small, medium, large);
+        checkInside(45.2, 5.2, medium, large);
+        checkInside(41.0, 1.0, large);
+        checkInside(51.0, 1.0);
+    }
+    
+    
+    @Test
+    public void testAddAfterBuild()
+    {
+        int p = index.add(newRectangle(1.001, 1.001, 1.009, 1.009));
+        checkInside(1.005, 1.005, p);
+        
+        // index is rebuilt on next query
+        int q = index.add(newRectangle(2.001, 2.001, 2.009, 2.009));
+        assertNull(index.cells);
+        checkInside(2.005, 2.005, q);
+    }
+}
@@ -0,0 +1,250 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Random;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.vast.swe.helper.GeoPosHelper;
+
+
+public class TestGorillaCodec
+{
+    static final long START_TIME = 1792195200000000L; // us
+    
+    DataComponent recordStruct;
+    
+    
+    @Before
+    public void setup()
+    {
+        GeoPosHelper fac = new GeoPosHelper();
+        recordStruct = fac.newDataRecord(2);
+        recordStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        recordStruct.addComponent("accel", fac.newAccelerationVector(null, "#LOCAL_FRAME", "m/s2"));
+    }
+    
+    
+    private DataBlock[] newRecords(long[] times, float[][] values)
+    {
+        DataBlock[] records = new DataBlock[times.length];
+        for (int r = 0; r < times.length; r++)
+        {
+            DataBlock rec = recordStruct.createDataBlock();
+            rec.setDoubleValue(0, times[r] / 1e6);
+            for (int i = 0; i < 3; i++)
+                rec.setFloatValue(i+1, values[r][i]);
+            records[r] = rec;
+        }
+        return records;
+    }
+    
+    
+    private float[][] newValues(int numRecords, float value)
+    {
+        float[][] values = new float[numRecords][3];
+        for (int r = 0; r < numRecords; r++)
+            values[r] = new float[] {value, -value, 2*value};
+        return values;
+    }
+    
+    
+    private void checkRoundTrip(long[] times, float[][] values)
+    {
+        DataBlock[] records = newRecords(times, values);
+        
+        // encode a partial array to check numRecords is honored
+        DataBlock[] input = new DataBlock[records.length + 2];
+        System.arraycopy(records, 0, input, 0, records.length);
+        byte[] data = new GorillaCodec().encode(input, records.length);
+        DataBlock[] output = new GorillaCodec().decode(data, recordStruct);
+        
+        assertEquals("Wrong number of records", records.length, output.length);
+        for (int r = 0; r < records.length; r++)
+        {
+            assertEquals("Wrong time stamp at record " + r, times[r], Math.round(output[r].getDoubleValue(0) * 1e6));
+            for (int i = 0; i < 3; i++)
+            {
+                assertEquals("Wrong value " + i + " at record " + r,
+                    Float.floatToIntBits(values[r][i]),
+                    Float.floatToIntBits(output[r].getFloatValue(i+1)));
+            }
+        }
+    }
+    
+    
+    @Test
+    public void testRegularTimeStamps()
+    {
+        long[] times = new long[100];
+        for (int r = 0; r < times.length; r++)
+            times[r] = START_TIME + r * 10000L;
+        
+        checkRoundTrip(times, newValues(times.length, 9.81f));
+    }
+    
+    
+    @Test
+    public void testJitteredTimeStamps()
+    {
+        Random rand = new Random(42);
+        long[] times = new long[500];
+        times[0] = START_TIME;
+        for (int r = 1; r < times.length; r++)
+            times[r] = times[r-1] + 10000L + rand.nextInt(6001) - 3000;
+        
+        float[][] values = new float[times.length][3];
+        for (int r = 0; r < times.length; r++)
+            for (int i = 0; i < 3; i++)
+                values[r][i] = (float)rand.nextGaussian() * 10f;
+        
+        checkRoundTrip(times, values);
+    }
+    
+    
+    @Test
+    public void testBoundaryTimeDeltas()
+    {
+        // delta-of-deltas at the edges of each encoding range
+        long[] dods = {0, -64, 63, 64, -65, -256, 255, 256, -257, -2048, 2047, 2048, -2049, 1000000L, -1000000L, 1, -1};
+        long[] times = new long[dods.length + 2];
+        times[0] = START_TIME;
+        long delta = 10000L;
+        times[1] = times[0] + delta;
+        for (int r = 0; r < dods.length; r++)
+        {
+            delta += dods[r];
+            times[r+2] = times[r+1] + delta;
+        }
+        
+        checkRoundTrip(times, newValues(times.length, 1.0f));
+    }
+    
+    
+    @Test
+    public void testSpecialValues()
+    {
+        float[] seq = {
+            1.5f, 1.5f, 1.5f, -1.5f, 1.5f, -1.5f,
+            Float.NaN, Float.NaN, 0.0f, -0.0f, 0.0f,
+            Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+            Float.MIN_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE,
+            1e-30f, 3.14159f, 3.14159f, Float.NaN, 42.0f
+        };
+        
+        long[] times = new long[seq.length];
+        float[][] values = new float[seq.length][];
+        for (int r = 0; r < seq.length; r++)
+        {
+            times[r] = START_TIME + r * 20000L;
+            values[r] = new float[] {seq[r], -seq[r], seq[seq.length-1-r]};
+        }
+        
+        checkRoundTrip(times, values);
+    }
+    
+    
+    @Test
+    public void testEmptyBatch()
+    {
+        checkRoundTrip(new long[0], new float[0][]);
+    }
+    
+    
+    private DataRecord newFlatRecord(int numValues)
+    {
+        GeoPosHelper fac = new GeoPosHelper();
+        DataRecord rec = fac.newDataRecord(numValues + 1);
+        rec.addComponent("time", fac.newTimeStampIsoUTC());
+        for (int i = 0; i < numValues; i++)
+            rec.addComponent("v" + i, fac.createQuantity().uomCode("m").build());
+        return rec;
+    }
+    
+    
+    @Test
+    public void testMaxValues()
+    {
+        DataRecord rec = newFlatRecord(GorillaCodec.MAX_VALUES);
+        GorillaCodec.checkStructure(rec);
+        
+        DataBlock[] records = new DataBlock[3];
+        for (int r = 0; r < records.length; r++)
+        {
+            records[r] = rec.createDataBlock();
+            records[r].setDoubleValue(0, (START_TIME + r * 10000L) / 1e6);
+            for (int i = 0; i < GorillaCodec.MAX_VALUES; i++)
+                records[r].setFloatValue(i+1, i * 0.5f + r);
+        }
+        
+        byte[] data = new GorillaCodec().encode(records, records.length);
+        DataBlock[] output = new GorillaCodec().decode(data, rec);
+        assertEquals(records.length, output.length);
+        for (int r = 0; r < records.length; r++)
+        {
+            for (int i = 0; i < GorillaCodec.MAX_VALUES; i++)
+                assertEquals(records[r].getFloatValue(i+1), output[r].getFloatValue(i+1), 0.0f);
+        }
+    }
+    
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyValues()
+    {
+        GorillaCodec.checkStructure(newFlatRecord(GorillaCodec.MAX_VALUES + 1));
+    }
+    
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeTooManyValues()
+    {
+        DataRecord rec = newFlatRecord(GorillaCodec.MAX_VALUES + 1);
+        new GorillaCodec().encode(new DataBlock[] {rec.createDataBlock()}, 1);
+    }
+    
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testArrayRejected()
+    {
+        GeoPosHelper fac = new GeoPosHelper();
+        DataRecord rec = newFlatRecord(2);
+        DataArray samples = fac.newDataArray(100);
+        samples.setElementType("sample", fac.createQuantity().uomCode("m").build());
+        rec.addComponent("samples", samples);
+        GorillaCodec.checkStructure(rec);
+    }
+    
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingTimeRejected()
+    {
+        GeoPosHelper fac = new GeoPosHelper();
+        DataRecord rec = fac.newDataRecord(1);
+        rec.addComponent("v", fac.createQuantity().uomCode("m").build());
+        GorillaCodec.checkStructure(rec);
+    }
+    
+    
+    @Test
+    public void testSensorRecordAccepted()
+    {
+        GorillaCodec.checkStructure(recordStruct);
+    }
+}
@@ -0,0 +1,112 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+ 
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+ 
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.android;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+
+public class TestTimeBase
+{
+    static final long BOOT_TIME_MILLIS = 1792195200000L; // UTC at elapsedRealtime = 0
+    static final double EPS = 1e-6; // s
+    
+    
+    /*
+     * Time base reading simulated clocks instead of Android ones
+     */
+    static class SimTimeBase extends TimeBase
+    {
+        long elapsedNanos = 5000000000L;
+        long systemOffsetMillis = BOOT_TIME_MILLIS;
+        int numClockReads;
+        
+        void advance(long nanos)
+        {
+            elapsedNanos += nanos;
+        }
+        
+        @Override
+        protected long getElapsedRealtimeNanos()
+        {
+            numClockReads++;
+            return elapsedNanos;
+        }
+        
+        @Override
+        protected long getCurrentTimeMillis()
+        {
+            return systemOffsetMillis + elapsedNanos / 1000000L;
+        }
+    }
+    
+    
+    @Test
+    public void testFirstConversionIsUtc()
+    {
+        SimTimeBase timeBase = new SimTimeBase();
+        long ts = timeBase.elapsedNanos + 1000000L;
+        double expected = (BOOT_TIME_MILLIS + ts / 1000000L) / 1e3;
+        assertEquals(expected, timeBase.getJulianTime(ts), EPS);
+    }
+    
+    
+    @Test
+    public void testNoClockReadWithinUpdatePeriod()
+    {
+        SimTimeBase timeBase = new SimTimeBase();
+        timeBase.update();
+        int numReads = timeBase.numClockReads;
+        
+        for (int i = 0; i < 100; i++)
+        {
+            long ts = timeBase.elapsedNanos + i * 10000000L;
+            double expected = (BOOT_TIME_MILLIS + ts / 1000000L) / 1e3;
+            assertEquals(expected, timeBase.getJulianTime(ts), EPS);
+        }
+        
+        assertEquals(numReads, timeBase.numClockReads);
+    }
+    
+    
+    @Test
+    public void testPeriodicUpdate()
+    {
+        SimTimeBase timeBase = new SimTimeBase();
+        timeBase.getJulianTime(timeBase.elapsedNanos);
+        int numReads = timeBase.numClockReads;
+        
+        timeBase.advance(2 * TimeBase.UPDATE_PERIOD);
+        long ts = timeBase.elapsedNanos;
+        double expected = (BOOT_TIME_MILLIS + ts / 1000000L) / 1e3;
+        assertEquals(expected, timeBase.getJulianTime(ts), EPS);
+        assertEquals(numReads + 2, timeBase.numClockReads);
+    }
+    
+    
+    @Test
+    public void testSystemClockSet()
+    {
+        SimTimeBase timeBase = new SimTimeBase();
+        timeBase.update();
+        
+        // system clock set 1h forward
+        timeBase.systemOffsetMillis += 3600000L;
+        timeBase.advance(2 * TimeBase.UPDATE_PERIOD);
+        long ts = timeBase.elapsedNanos;
+        double expected = (timeBase.systemOffsetMillis + ts / 1000000L) / 1e3;
+        assertEquals(expected, timeBase.getJulianTime(ts), EPS);
+    }
+}